@@ -1,6 +1,8 @@
 package io.jenkins.plugins.projectenv;
 
 import hudson.Extension;
+import hudson.Util;
+import io.jenkins.plugins.projectenv.config.CliMirror;
 import org.jenkinsci.plugins.workflow.steps.Step;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
 import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
@@ -8,7 +10,9 @@ import org.jenkinsci.plugins.workflow.steps.StepExecution;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 public class WithProjectEnvStep extends Step {
@@ -16,6 +20,8 @@ public class WithProjectEnvStep extends Step {
     private String cliVersion;
     private boolean cliDebug;
     private String configFile = "project-env.toml";
+    private String cliDownloadUrlTemplate;
+    private List<String> tools;
 
     @DataBoundConstructor
     public WithProjectEnvStep() {
@@ -37,13 +43,24 @@ public class WithProjectEnvStep extends Step {
         this.configFile = configFile;
     }
 
-    @Override
-    public StepExecution start(StepContext stepContext) throws Exception {
-        if (cliVersion != null) {
-            return new WithProjectEnvStepExecution(stepContext, cliDebug, configFile, cliVersion);
+    @DataBoundSetter
+    public void setCliDownloadUrlTemplate(String cliDownloadUrlTemplate) {
+        String urlTemplate = Util.fixEmptyAndTrim(cliDownloadUrlTemplate);
+        if (urlTemplate != null && !CliMirror.isHttpUrlTemplate(urlTemplate)) {
+            throw new IllegalArgumentException("cliDownloadUrlTemplate must be an http(s) URL");
         }
 
-        return new WithProjectEnvStepExecution(stepContext, cliDebug, configFile);
+        this.cliDownloadUrlTemplate = urlTemplate;
+    }
+
+    @DataBoundSetter
+    public void setTools(List<String> tools) {
+        this.tools = tools != null && !tools.isEmpty() ? new ArrayList<>(tools) : null;
+    }
+
+    @Override
+    public StepExecution start(StepContext stepContext) throws Exception {
+        return new WithProjectEnvStepExecution(stepContext, cliDebug, configFile, cliVersion, cliDownloadUrlTemplate, tools);
     }
 
     @Extension
@@ -3,61 +3,65 @@ package io.jenkins.plugins.projectenv;
 import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.Util;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.Run;
+import hudson.model.TaskListener;
 import io.jenkins.plugins.projectenv.agent.AgentInfo;
-import io.jenkins.plugins.projectenv.agent.AgentInfoCallable;
+import io.jenkins.plugins.projectenv.agent.AgentInfoCache;
 import io.jenkins.plugins.projectenv.agent.OperatingSystem;
+import io.jenkins.plugins.projectenv.cleanup.OrphanedTempDirectorySweeper;
+import io.jenkins.plugins.projectenv.cleanup.TempDirectoryReaper;
+import io.jenkins.plugins.projectenv.cli.CliProvisioner;
+import io.jenkins.plugins.projectenv.cli.LatestCliVersionResolver;
+import io.jenkins.plugins.projectenv.config.ProjectEnvConfiguration;
+import io.jenkins.plugins.projectenv.configfile.ConfigFileHelper;
 import io.jenkins.plugins.projectenv.context.StepContextHelper;
+import io.jenkins.plugins.projectenv.environment.CompactEnvironmentExpander;
+import io.jenkins.plugins.projectenv.environment.ResolvedEnvironmentAction;
+import io.jenkins.plugins.projectenv.interrupt.InterruptHelper;
+import io.jenkins.plugins.projectenv.lock.AgentLock;
+import io.jenkins.plugins.projectenv.proc.LimitedByteArrayOutputStream;
 import io.jenkins.plugins.projectenv.proc.ProcHelper;
-import io.jenkins.plugins.projectenv.proc.ProcResult;
+import io.jenkins.plugins.projectenv.snapshot.ToolsSnapshotStore;
+import io.jenkins.plugins.projectenv.throttle.DownloadThrottle;
+import io.jenkins.plugins.projectenv.timing.ProjectEnvMetrics;
+import io.jenkins.plugins.projectenv.timing.StepPhase;
+import io.jenkins.plugins.projectenv.timing.StepTiming;
+import io.jenkins.plugins.projectenv.timing.StepTimingAction;
 import io.jenkins.plugins.projectenv.toolinfo.ToolInfo;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfoCache;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfoEnvironment;
 import io.jenkins.plugins.projectenv.toolinfo.ToolInfoParser;
 import org.apache.commons.collections.MapUtils;
-import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang.StringUtils;
-import org.apache.http.Header;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.client.methods.RequestBuilder;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.jenkinsci.plugins.workflow.steps.BodyExecutionCallback;
 import org.jenkinsci.plugins.workflow.steps.EnvironmentExpander;
 import org.jenkinsci.plugins.workflow.steps.GeneralNonBlockingStepExecution;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
 
 import javax.annotation.Nonnull;
+import java.io.File;
 import java.io.IOException;
-import java.net.URI;
+import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
-import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class WithProjectEnvStepExecution extends GeneralNonBlockingStepExecution {
 
-    private static final Pattern LATEST_CLI_VERSION_PATTERN = Pattern.compile(".+/v(.+)$");
+    private static final Logger LOGGER = Logger.getLogger(WithProjectEnvStepExecution.class.getName());
 
-    private static final String PROJECT_ENV_CLI_DOWNLOAD_PATTERN = "https://github.com/Project-Env/project-env-core/releases/download/v{0}/cli-{0}-{1}-{2}.{3}";
-
-    private static final String CLI_ARCHIVE_EXTENSION_TAR_GZ = "tar.gz";
-    private static final String CLI_ARCHIVE_EXTENSION_ZIP = "zip";
-
-    private static final String CLI_EXECUTABLE_FILE_NAME = "project-env-cli";
-
-    private static final String CLI_EXECUTABLE_FILE_EXTENSION_WINDOWS = ".exe";
-    private static final String CLI_EXECUTABLE_FILE_EXTENSION_OTHERS = StringUtils.EMPTY;
-
-    private static final String CLI_TARGET_OS_WINDOWS = "windows";
-    private static final String CLI_TARGET_OS_MACOS = "macos";
-    private static final String CLI_TARGET_OS_LINUX = "linux";
-
-    private static final String CLI_TARGET_ARCH_AMD_64 = "amd64";
-
-    private static final String PATH_VAR_PREFIX = "PATH+";
+    private static final long MAX_CLI_STD_OUT_SIZE = 64 * 1024 * 1024;
 
     private static final String PROJECT_ENV_MAVEN_TOOL_NAME = "maven";
     private static final String PROJECT_ENV_MAVEN_USER_SETTINGS_FILE = "userSettingsFile";
@@ -65,17 +69,44 @@ public class WithProjectEnvStepExecution extends GeneralNonBlockingStepExecution
     private final String fixedCliVersion;
     private final boolean cliDebug;
     private final String configFile;
+    private final String cliDownloadUrlTemplate;
+    private final List<String> tools;
+
+    // checkpoints of the finished phases, which are persisted with the program after each phase, so that the start
+    // can be continued from them if the controller restarts before the body has been started
+    private volatile String temporaryDirectoryName;
+    private volatile String resolvedCliVersion;
+    private volatile String cliDirectory;
+    private volatile EnvVars resolvedProjectEnvVars;
+    private volatile boolean bodyStarted;
+
+    private transient StepTiming timing;
+    private transient String effectiveConfigFile;
+    private transient String configFileId;
+    private transient boolean resumed;
+    private transient volatile boolean stopped;
+    private transient Set<Thread> activeThreads;
 
     public WithProjectEnvStepExecution(StepContext stepContext, boolean cliDebug, String configFile) {
         this(stepContext, cliDebug, configFile, null);
     }
 
     public WithProjectEnvStepExecution(StepContext stepContext, boolean cliDebug, String configFile, String fixedCliVersion) {
+        this(stepContext, cliDebug, configFile, fixedCliVersion, null);
+    }
+
+    public WithProjectEnvStepExecution(StepContext stepContext, boolean cliDebug, String configFile, String fixedCliVersion, String cliDownloadUrlTemplate) {
+        this(stepContext, cliDebug, configFile, fixedCliVersion, cliDownloadUrlTemplate, null);
+    }
+
+    public WithProjectEnvStepExecution(StepContext stepContext, boolean cliDebug, String configFile, String fixedCliVersion, String cliDownloadUrlTemplate, List<String> tools) {
         super(stepContext);
 
         this.fixedCliVersion = fixedCliVersion;
         this.cliDebug = cliDebug;
         this.configFile = configFile;
+        this.cliDownloadUrlTemplate = cliDownloadUrlTemplate;
+        this.tools = tools != null ? new ArrayList<>(tools) : null;
     }
 
     @Override
@@ -84,188 +115,476 @@ public class WithProjectEnvStepExecution extends GeneralNonBlockingStepExecution
         return false;
     }
 
+    /**
+     * Interrupts all phases which are still running. Interrupting a remoting call cancels it on the agent as well,
+     * which kills the Project-Env CLI process tree, closes open downloads and releases the locks held by this step.
+     */
+    @Override
+    public void stop(@Nonnull Throwable cause) throws Exception {
+        synchronized (getActiveThreads()) {
+            stopped = true;
+            getActiveThreads().forEach(Thread::interrupt);
+        }
+
+        super.stop(cause);
+    }
+
+    @Override
+    public void onResume() {
+        // the registration of the temporary directory does not survive a controller restart
+        if (temporaryDirectoryName != null) {
+            OrphanedTempDirectorySweeper.register(temporaryDirectoryName);
+        }
+        if (!bodyStarted) {
+            resumed = true;
+            run(this::execute);
+        }
+    }
+
     private void execute() throws Exception {
-        AgentInfo agentInfo = getAgentInfo();
+        try {
+            Computer computer = StepContextHelper.getComputer(getContext());
+            timing = new StepTiming(computer.getName());
+            effectiveConfigFile = tools != null ?
+                    ConfigFileHelper.createToolsSubsetConfigFile(StepContextHelper.getWorkspace(getContext()), configFile, tools) : configFile;
+            configFileId = tools != null ? ConfigFileHelper.createToolsSubsetConfigFileId(configFile, tools) : configFile;
+
+            // the reduced configuration file is only needed until the Project-Env CLI ran, it is not kept in the workspace
+            CompletableFuture<?> start;
+            try {
+                start = startBodyWithProjectEnv(computer);
+            } catch (Exception e) {
+                removeToolsSubsetConfigFile();
+                throw e;
+            }
+            start.whenComplete((result, failure) -> removeToolsSubsetConfigFile());
+        } catch (Exception e) {
+            // neither the failure handling of the asynchronous start nor the TailCall of the body remove the temporary
+            // directory of a start which failed synchronously
+            removeTemporaryDirectoryOfFailedStart();
+            throw e;
+        }
+    }
 
+    private CompletableFuture<?> startBodyWithProjectEnv(Computer computer) throws Exception {
         FilePath temporaryDirectory = createTemporaryDirectory();
-        EnvVars projectEnvVars = new EnvVars();
 
-        String executable = resolveProjectEnvCliExecutableFromPath(agentInfo);
-        if (executable == null) {
-            FilePath projectEnvCliArchive = downloadProjectEnvCliArchive(agentInfo, temporaryDirectory);
-            extractProjectEnvCliArchive(projectEnvCliArchive, temporaryDirectory);
+        // the agent probe (including the lookup of the CLI on the PATH) and the version resolution are independent, the
+        // speculative CLI provisioning only has to wait for the version
+        CompletableFuture<AgentInfo> agentInfoFuture = async(() -> timing.time(StepPhase.AGENT_PROBE, this::getAgentInfo));
+        CompletableFuture<String> cliVersionFuture = async(() -> timing.time(StepPhase.VERSION_RESOLUTION, this::getCliVersion));
+        CompletableFuture<FilePath> speculativeCliDirectoryFuture = provisionCliSpeculatively(computer, cliVersionFuture, temporaryDirectory);
+
+        return CompletableFuture.allOf(agentInfoFuture, cliVersionFuture)
+                .thenCompose(ignored -> async(() -> startBodyWithProjectEnv(computer, agentInfoFuture.join(), cliVersionFuture.join(),
+                        speculativeCliDirectoryFuture, temporaryDirectory)))
+                .thenCompose(start -> start)
+                .whenComplete((result, failure) -> {
+                    if (failure != null) {
+                        removeTemporaryDirectory(temporaryDirectory);
+
+                        // a stopped step has already been completed with the cause it was stopped with
+                        if (!stopped) {
+                            getContext().onFailure(failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure);
+                        }
+                    }
+                });
+    }
+
+    private CompletableFuture<Void> startBodyWithProjectEnv(Computer computer, AgentInfo agentInfo, String cliVersion,
+                                                            CompletableFuture<FilePath> speculativeCliDirectoryFuture, FilePath temporaryDirectory) throws Exception {
+        // the reused environment has to match the resolved version
+        String environmentKey = timing.time(StepPhase.ENVIRONMENT_REUSE, () -> createResolvedEnvironmentKey(cliVersion));
+        EnvVars resolvedEnvVars = environmentKey != null ?
+                timing.time(StepPhase.ENVIRONMENT_REUSE, () -> ResolvedEnvironmentAction.get(
+                        StepContextHelper.getRun(getContext()), StepContextHelper.getWorkspace(getContext()), environmentKey)) : null;
+        if (resolvedEnvVars != null) {
+            StepContextHelper.getTaskListener(getContext()).getLogger()
+                    .println("reusing environment resolved by a previous withProjectEnv block of this run");
+            publishTiming(computer);
+
+            // the temporary directory is only used by a speculative CLI provisioning, which is left to finish in the background
+            if (speculativeCliDirectoryFuture != null) {
+                speculativeCliDirectoryFuture.whenComplete((cliDirectory, failure) -> removeTemporaryDirectory(temporaryDirectory));
+            } else {
+                removeTemporaryDirectory(temporaryDirectory);
+            }
+
+            invokeBodyWithEnvVarsAndCallback(resolvedEnvVars, BodyExecutionCallback.wrap(getContext()));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (resumed) {
+            StepContextHelper.getTaskListener(getContext()).getLogger()
+                    .println("continuing start of withProjectEnv after controller restart from the last finished phase");
+        }
 
-            executable = resolveProjectEnvCliExecutable(agentInfo, temporaryDirectory);
-            projectEnvVars.put(PATH_VAR_PREFIX + "PROJECT_ENV_CLI", temporaryDirectory.getRemote());
+        EnvVars checkpointedProjectEnvVars = resolvedProjectEnvVars;
+        if (checkpointedProjectEnvVars != null) {
+            startBody(computer, environmentKey, checkpointedProjectEnvVars, temporaryDirectory);
+            return CompletableFuture.completedFuture(null);
         }
-        Map<String, List<ToolInfo>> allToolInfos = executeProjectEnvCli(executable);
-        processToolInfos(projectEnvVars, allToolInfos, agentInfo);
+
+        return resolveEnvironment(agentInfo, cliVersion, speculativeCliDirectoryFuture, temporaryDirectory)
+                .thenCompose(projectEnvVars -> this.<Void>async(() -> {
+                    startBody(computer, environmentKey, projectEnvVars, temporaryDirectory);
+                    return null;
+                }));
+    }
+
+    private void startBody(Computer computer, String environmentKey, EnvVars projectEnvVars, FilePath temporaryDirectory) throws Exception {
+        if (environmentKey != null) {
+            ResolvedEnvironmentAction.put(StepContextHelper.getRun(getContext()), StepContextHelper.getWorkspace(getContext()), environmentKey, projectEnvVars);
+        }
+        publishTiming(computer);
 
         BodyExecutionCallback callback = createTempDirectoryCleanupCallback(temporaryDirectory);
         invokeBodyWithEnvVarsAndCallback(projectEnvVars, callback);
     }
 
-    private String resolveProjectEnvCliExecutableFromPath(AgentInfo agentInfo) throws Exception {
-        String[] commands = getExecutablePathResolveCommand(agentInfo);
-
-        String stdOut = StringUtils.trimToNull(ProcHelper.executeAndGetStdOut(getContext(), commands));
-        if (stdOut == null) {
+    /**
+     * Provisions the CLI for the platform known from a previous probe of the agent, while the PATH of this step is
+     * still searched for a CLI executable. This is only done if the CLI was not found on the PATH before.
+     *
+     * @return the future of the CLI directory or <code>null</code>, if the agent has not been probed yet
+     */
+    private CompletableFuture<FilePath> provisionCliSpeculatively(Computer computer, CompletableFuture<String> cliVersionFuture, FilePath temporaryDirectory) {
+        AgentInfo knownAgentInfo = AgentInfoCache.getIfPresent(computer);
+        if (knownAgentInfo == null || knownAgentInfo.getCliExecutable().isPresent()) {
             return null;
         }
 
-        return stdOut.split(agentInfo.getLineSeparator())[0];
+        return cliVersionFuture.thenCompose(cliVersion -> async(() -> provisionCli(knownAgentInfo, cliVersion, temporaryDirectory)));
     }
 
-    private String[] getExecutablePathResolveCommand(AgentInfo agentInfo) {
-        String executable = getProjectEnvCliExecutableName(agentInfo);
-        if (agentInfo.getOperatingSystem() == OperatingSystem.WINDOWS) {
-            return new String[]{"where", executable};
+    private CompletableFuture<EnvVars> resolveEnvironment(AgentInfo agentInfo, String cliVersion,
+                                                          CompletableFuture<FilePath> speculativeCliDirectoryFuture, FilePath temporaryDirectory) {
+        String executable = agentInfo.getCliExecutable().orElse(null);
+
+        CompletableFuture<FilePath> cliDirectoryFuture;
+        if (executable != null) {
+            // a speculatively provisioned CLI is not needed, but it is kept in the cache of the agent
+            timing.setCliArchitecture(CliProvisioner.getCliTargetArchitecture(agentInfo));
+            cliDirectoryFuture = CompletableFuture.completedFuture(null);
+        } else if (speculativeCliDirectoryFuture != null) {
+            cliDirectoryFuture = speculativeCliDirectoryFuture;
         } else {
-            return new String[]{"/bin/sh", "-c", "which " + executable};
+            cliDirectoryFuture = async(() -> provisionCli(agentInfo, cliVersion, temporaryDirectory));
+        }
+
+        return cliDirectoryFuture.thenCompose(cliDirectory -> async(() -> {
+            EnvVars projectEnvVars = new EnvVars();
+
+            String cliExecutable = executable;
+            if (cliDirectory != null) {
+                cliExecutable = cliDirectory.child(CliProvisioner.getExecutableName(agentInfo)).getRemote();
+                projectEnvVars.put(ToolInfoEnvironment.PATH_VAR_PREFIX + "PROJECT_ENV_CLI", cliDirectory.getRemote());
+            }
+            resolveAndProcessToolInfos(projectEnvVars, cliExecutable, agentInfo);
+            resolvedProjectEnvVars = projectEnvVars;
+            saveCheckpoint();
+
+            return projectEnvVars;
+        }));
+    }
+
+    /**
+     * Executes the given callable on the remoting thread pool, so that independent phases can overlap and no thread
+     * has to wait for a phase it does not depend on. The thread is interrupted if the step gets stopped meanwhile.
+     * <p>
+     * This is deliberately only a partial realization of a non-blocking start: the phases still block their pool
+     * thread during remoting calls, HTTP requests and the CLI process. {@code FilePath.actAsync} and
+     * {@code Channel.callAsync} would not change that, since the futures they return offer no completion callbacks
+     * and would have to be waited for by a thread as well. The CPS VM thread is never blocked though.
+     */
+    private <T> CompletableFuture<T> async(Callable<T> callable) {
+        return CompletableFuture.supplyAsync(() -> {
+            Thread thread = Thread.currentThread();
+            synchronized (getActiveThreads()) {
+                if (stopped) {
+                    throw new CompletionException(new InterruptedException("withProjectEnv has been stopped"));
+                }
+                getActiveThreads().add(thread);
+            }
+
+            try {
+                return callable.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                synchronized (getActiveThreads()) {
+                    getActiveThreads().remove(thread);
+                }
+                if (stopped) {
+                    // the thread is returned to the pool, which must not receive the interrupt meant for this step
+                    Thread.interrupted();
+                }
+            }
+        }, Computer.threadPoolForRemoting);
+    }
+
+    /**
+     * Asks the pipeline to persist the program with the checkpoint which has just been set, so that it survives a
+     * crash of the controller and not only an orderly shutdown. The program is not saved if the durability setting of
+     * the pipeline does not persist the program with every step.
+     */
+    private void saveCheckpoint() {
+        getContext().saveState();
+    }
+
+    private synchronized Set<Thread> getActiveThreads() {
+        if (activeThreads == null) {
+            activeThreads = new HashSet<>();
+        }
+
+        return activeThreads;
+    }
+
+    private void removeToolsSubsetConfigFile() {
+        if (effectiveConfigFile.equals(configFile)) {
+            return;
+        }
+
+        try {
+            FilePath workspace = StepContextHelper.getWorkspace(getContext());
+            InterruptHelper.runUninterruptibly(() -> ConfigFileHelper.removeToolsSubsetConfigFile(workspace, effectiveConfigFile));
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "failed to remove reduced configuration file " + effectiveConfigFile, e);
+        }
+    }
+
+    private void removeTemporaryDirectory(FilePath temporaryDirectory) {
+        TempDirectoryReaper.schedule(temporaryDirectory).whenComplete((durationMillis, throwable) -> {
+            // a directory which could not be removed is left to the sweeper
+            OrphanedTempDirectorySweeper.unregister(temporaryDirectory.getName());
+            if (throwable != null) {
+                LOGGER.log(Level.WARNING, "failed to remove temporary directory " + temporaryDirectory, throwable);
+            }
+        });
+    }
+
+    private void removeTemporaryDirectoryOfFailedStart() {
+        if (temporaryDirectoryName == null) {
+            return;
+        }
+
+        try {
+            removeTemporaryDirectory(StepContextHelper.getTemporaryDirectory(getContext()).child(temporaryDirectoryName));
+        } catch (Exception e) {
+            // the directory is left to the sweeper, which only reclaims directories which are no longer registered
+            OrphanedTempDirectorySweeper.unregister(temporaryDirectoryName);
+            LOGGER.log(Level.WARNING, "failed to remove temporary directory " + temporaryDirectoryName, e);
         }
     }
 
+    private String createResolvedEnvironmentKey(String cliVersion) throws Exception {
+        FilePath workspace = StepContextHelper.getWorkspace(getContext());
+        FilePath configFilePath = workspace.child(effectiveConfigFile);
+        if (!configFilePath.exists()) {
+            // let the Project-Env CLI report the missing configuration file
+            return null;
+        }
+
+        return ResolvedEnvironmentAction.createKey(StepContextHelper.getComputer(getContext()).getName(),
+                workspace, configFileId, configFilePath.digest(), cliVersion);
+    }
+
     private AgentInfo getAgentInfo() throws Exception {
-        return StepContextHelper.getComputer(getContext()).getChannel().call(new AgentInfoCallable());
+        Computer computer = StepContextHelper.getComputer(getContext());
+        String searchPath = StepContextHelper.getEnvVars(getContext()).get("PATH");
+
+        return AgentInfoCache.get(computer, searchPath, CliProvisioner.CLI_EXECUTABLE_FILE_NAME);
     }
 
     private FilePath createTemporaryDirectory() throws Exception {
         FilePath temporaryDirectoryRoot = StepContextHelper.getTemporaryDirectory(getContext());
-        String temporaryDirectoryName = generateTemporaryDirectoryName();
+        if (temporaryDirectoryName == null) {
+            temporaryDirectoryName = generateTemporaryDirectoryName();
+        }
+        OrphanedTempDirectorySweeper.register(temporaryDirectoryName);
 
         return temporaryDirectoryRoot.child(temporaryDirectoryName);
     }
 
     private String generateTemporaryDirectoryName() {
-        return "withProjectEnv" + Util.getDigestOf(UUID.randomUUID().toString()).substring(0, 8);
+        return OrphanedTempDirectorySweeper.TEMPORARY_DIRECTORY_PREFIX + Util.getDigestOf(UUID.randomUUID().toString()).substring(0, 8);
     }
 
-    private FilePath downloadProjectEnvCliArchive(AgentInfo agentInfo, FilePath targetDirectory) throws Exception {
-        String archiveUrl = createProjectEnvCliArchiveUrl(agentInfo);
-        String archiveFilename = FilenameUtils.getName(archiveUrl);
+    private void publishTiming(Computer computer) throws Exception {
+        timing.markBodyStarted();
+        StepContextHelper.getTaskListener(getContext()).getLogger().println("withProjectEnv timings: " + timing.toCompactString());
 
-        FilePath targetFile = targetDirectory.child(archiveFilename);
-        targetFile.copyFrom(new URI(archiveUrl).toURL());
+        StepTimingAction.record(StepContextHelper.getRun(getContext()), timing);
 
-        return targetFile;
+        Node node = computer.getNode();
+        if (node != null) {
+            ProjectEnvMetrics.get().record(node, timing);
+        }
     }
 
-    private String createProjectEnvCliArchiveUrl(AgentInfo agentInfo) {
-        String cliTargetOs = getCliTargetOs(agentInfo);
-        String cliArchiveExtension = getCliArchiveExtension(agentInfo);
-        String cliTargetArchitecture = getCliTargetArchitecture();
+    private FilePath provisionCli(AgentInfo agentInfo, String cliVersion, FilePath temporaryDirectory) throws Exception {
+        Computer computer = StepContextHelper.getComputer(getContext());
+        TaskListener listener = StepContextHelper.getTaskListener(getContext());
+
+        if (cliDirectory != null) {
+            FilePath checkpointedCliDirectory = StepContextHelper.getWorkspace(getContext()).child(cliDirectory);
+            if (checkpointedCliDirectory.child(CliProvisioner.getExecutableName(agentInfo)).exists()) {
+                return checkpointedCliDirectory;
+            }
+        }
+
+        CliProvisioner provisioner = cliDownloadUrlTemplate != null ?
+                CliProvisioner.forStepUrlTemplate(computer, agentInfo, listener, timing, cliDownloadUrlTemplate) :
+                new CliProvisioner(computer, agentInfo, listener, timing, ProjectEnvConfiguration.get().getEffectiveCliMirrors());
+        FilePath provisionedCliDirectory = provisioner.provision(cliVersion, temporaryDirectory);
+        cliDirectory = provisionedCliDirectory.getRemote();
+        saveCheckpoint();
 
-        return MessageFormat.format(PROJECT_ENV_CLI_DOWNLOAD_PATTERN, getCliVersion(), cliTargetOs, cliTargetArchitecture, cliArchiveExtension);
+        return provisionedCliDirectory;
     }
 
-    private String getCliVersion() {
+    private String getCliVersion() throws InterruptedException {
         if (fixedCliVersion != null) {
             return fixedCliVersion;
         }
+        if (resolvedCliVersion == null) {
+            // the checkpointed version is kept, so that a restart does not switch to a version released in the meantime
+            resolvedCliVersion = LatestCliVersionResolver.get().resolve();
+            saveCheckpoint();
+        }
 
-        return resolveLatestCliVersion();
+        return resolvedCliVersion;
     }
 
-    private String resolveLatestCliVersion() {
-        try {
-            try (CloseableHttpClient httpClient = HttpClients.custom().disableRedirectHandling().build()) {
-                HttpUriRequest request = RequestBuilder.get().setUri("https://github.com/Project-Env/project-env-cli/releases/latest").build();
-                try (CloseableHttpResponse response = httpClient.execute(request)) {
-                    int statusCode = response.getStatusLine().getStatusCode();
-                    if (statusCode != 302) {
-                        throw new IllegalStateException("expected redirection, but got " + statusCode);
-                    }
-
-                    Header location = response.getFirstHeader("Location");
-                    if (location == null) {
-                        throw new IllegalStateException("no redirection location present");
-                    }
+    private void resolveAndProcessToolInfos(EnvVars projectEnvVars, String executable, AgentInfo agentInfo) throws Exception {
+        FilePath workspace = StepContextHelper.getWorkspace(getContext());
+        FilePath temporaryDirectoryRoot = StepContextHelper.getTemporaryDirectory(getContext());
 
-                    Matcher matcher = LATEST_CLI_VERSION_PATTERN.matcher(location.getValue());
-                    if (!matcher.find()) {
-                        throw new IllegalStateException("failed to extract latest Project-Env CLI version from URL " + location.getValue());
+        Map<String, List<ToolInfo>> allToolInfos = ToolInfoCache.get(workspace, temporaryDirectoryRoot, effectiveConfigFile, configFileId, executable);
+        ProjectEnvMetrics.get().recordToolInfoCacheLookup(allToolInfos != null);
+        if (allToolInfos == null) {
+            // parallel branches and concurrent builds might share the tools directory, so only one of them may install tools at once
+            FilePath toolsDirectory = ConfigFileHelper.resolveToolsDirectory(workspace, effectiveConfigFile);
+            try (AgentLock lock = AgentLock.acquire(toolsDirectory)) {
+                logLockWaitTime(lock, "tools directory " + toolsDirectory.getRemote());
+
+                // another build might have installed the tools while we were waiting for the lock
+                allToolInfos = ToolInfoCache.get(workspace, temporaryDirectoryRoot, effectiveConfigFile, configFileId, executable);
+                if (allToolInfos == null) {
+                    boolean toolsInstalled = !toolsDirectory.list().isEmpty();
+                    String snapshotKey = !toolsInstalled ? createToolsSnapshotKey(agentInfo, toolsDirectory) : null;
+                    boolean snapshotRestored = snapshotKey != null && restoreToolsSnapshot(snapshotKey, toolsDirectory);
+
+                    // installed tools only have to be verified, so only fresh installs are queued behind other downloads
+                    allToolInfos = toolsInstalled || snapshotRestored ? executeProjectEnvCli(executable) : executeThrottledProjectEnvCli(executable);
+                    if (snapshotKey != null && !snapshotRestored) {
+                        // the snapshot is taken before the Maven wrapper is generated, since it is generated by every run
+                        saveToolsSnapshot(snapshotKey, toolsDirectory);
                     }
-
-                    return matcher.group(1);
+                    processToolInfos(projectEnvVars, allToolInfos, agentInfo, true);
+                    ToolInfoCache.put(workspace, temporaryDirectoryRoot, effectiveConfigFile, configFileId, executable, allToolInfos);
+                    return;
                 }
             }
-        } catch (IOException e) {
-            throw new RuntimeException("failed to resolve latest Project-Env CLI version", e);
         }
+
+        StepContextHelper.getTaskListener(getContext()).getLogger()
+                .println("reusing tools of previous Project-Env CLI run, since " + configFile + " and the installed tools are unchanged");
+        processToolInfos(projectEnvVars, allToolInfos, agentInfo, false);
     }
 
-    private String getCliTargetOs(AgentInfo agentInfo) {
-        OperatingSystem operatingSystem = agentInfo.getOperatingSystem();
-        switch (operatingSystem) {
-            case WINDOWS:
-                return CLI_TARGET_OS_WINDOWS;
-            case MACOS:
-                return CLI_TARGET_OS_MACOS;
-            case LINUX:
-                return CLI_TARGET_OS_LINUX;
-            default:
-                throw new IllegalArgumentException("unexpected value " + operatingSystem + " received");
+    /**
+     * @return the key of the tools snapshot to restore and save into the empty tools directory or <code>null</code>,
+     * if snapshots are disabled
+     */
+    private String createToolsSnapshotKey(AgentInfo agentInfo, FilePath toolsDirectory) throws Exception {
+        if (!ProjectEnvConfiguration.get().isToolsSnapshotsEnabled()) {
+            return null;
         }
-    }
 
-    private String getCliArchiveExtension(AgentInfo agentInfo) {
-        OperatingSystem operatingSystem = agentInfo.getOperatingSystem();
-        switch (operatingSystem) {
-            case WINDOWS:
-                return CLI_ARCHIVE_EXTENSION_ZIP;
-            case MACOS:
-            case LINUX:
-                return CLI_ARCHIVE_EXTENSION_TAR_GZ;
-            default:
-                throw new IllegalArgumentException("unexpected value " + operatingSystem + " received");
+        FilePath configFilePath = StepContextHelper.getWorkspace(getContext()).child(effectiveConfigFile);
+        if (!configFilePath.exists()) {
+            return null;
         }
-    }
 
-    private String getCliTargetArchitecture() {
-        return CLI_TARGET_ARCH_AMD_64;
+        // snapshots are never shared between jobs, so that a build can only restore tools which its own job installed
+        String jobFullName = StepContextHelper.getRun(getContext()).getParent().getFullName();
+
+        return ToolsSnapshotStore.createKey(jobFullName, configFilePath.digest(), toolsDirectory.getRemote(), agentInfo);
     }
 
-    private void extractProjectEnvCliArchive(FilePath archive, FilePath target) throws Exception {
-        if (StringUtils.endsWith(archive.getName(), CLI_ARCHIVE_EXTENSION_TAR_GZ)) {
-            archive.untar(target, FilePath.TarCompression.GZIP);
-        } else {
-            archive.unzip(target);
+    private boolean restoreToolsSnapshot(String snapshotKey, FilePath toolsDirectory) throws Exception {
+        PrintStream logger = StepContextHelper.getTaskListener(getContext()).getLogger();
+        File storeDirectory = ProjectEnvConfiguration.get().getEffectiveToolsSnapshotsDirectory();
+        try {
+            boolean restored = timing.time(StepPhase.SNAPSHOT_RESTORE, () -> ToolsSnapshotStore.restore(storeDirectory, snapshotKey, toolsDirectory));
+            if (restored) {
+                logger.println("restored tools snapshot into " + toolsDirectory.getRemote() + ", Project-Env CLI only has to verify the tools");
+            }
+
+            return restored;
+        } catch (IOException e) {
+            logger.println("failed to restore tools snapshot, installing tools from scratch: " + e.getMessage());
+            toolsDirectory.deleteContents();
+
+            return false;
         }
     }
 
-    private String resolveProjectEnvCliExecutable(AgentInfo agentInfo, FilePath sourceDirectory) throws Exception {
-        String executableFilename = getProjectEnvCliExecutableName(agentInfo);
-        FilePath executable = sourceDirectory.child(executableFilename);
-        if (!executable.exists()) {
-            throw new IllegalStateException("could not find Project-Env CLI at " + executable);
+    private void saveToolsSnapshot(String snapshotKey, FilePath toolsDirectory) throws Exception {
+        PrintStream logger = StepContextHelper.getTaskListener(getContext()).getLogger();
+        ProjectEnvConfiguration configuration = ProjectEnvConfiguration.get();
+        long maxSizeBytes = configuration.getMaxToolsSnapshotsSizeMegabytes() * 1024 * 1024;
+        try {
+            boolean saved = timing.time(StepPhase.SNAPSHOT_SAVE, () -> ToolsSnapshotStore.save(
+                    configuration.getEffectiveToolsSnapshotsDirectory(), snapshotKey, toolsDirectory, maxSizeBytes));
+            if (saved) {
+                logger.println("saved tools snapshot of " + toolsDirectory.getRemote());
+            }
+        } catch (IOException e) {
+            // the tools are installed anyway, so the build can continue without the snapshot
+            logger.println("failed to save tools snapshot: " + e.getMessage());
         }
-
-        return executable.getRemote();
     }
 
-    private String getProjectEnvCliExecutableName(AgentInfo agentInfo) {
-        return CLI_EXECUTABLE_FILE_NAME + getExecutableExtension(agentInfo);
+    private void logLockWaitTime(AgentLock lock, String lockedResource) throws Exception {
+        if (lock.getWaitMillis() > 0) {
+            StepContextHelper.getTaskListener(getContext()).getLogger()
+                    .println("waited " + lock.getWaitMillis() + " ms for other builds to release the lock on " + lockedResource);
+        }
     }
 
-    private String getExecutableExtension(AgentInfo agentInfo) {
-        return agentInfo.getOperatingSystem() == OperatingSystem.WINDOWS ?
-                CLI_EXECUTABLE_FILE_EXTENSION_WINDOWS : CLI_EXECUTABLE_FILE_EXTENSION_OTHERS;
+    private Map<String, List<ToolInfo>> executeThrottledProjectEnvCli(String executable) throws Exception {
+        Computer computer = StepContextHelper.getComputer(getContext());
+        try (DownloadThrottle.Permit permit = DownloadThrottle.get().acquireToolInstall(computer)) {
+            if (permit.getWaitMillis() > 0) {
+                StepContextHelper.getTaskListener(getContext()).getLogger()
+                        .println("waited " + permit.getWaitMillis() + " ms for other downloads to finish before installing tools");
+            }
+
+            return executeProjectEnvCli(executable);
+        }
     }
 
     private Map<String, List<ToolInfo>> executeProjectEnvCli(String executable) throws Exception {
         String[] commands = createProjectEnvCliCommand(executable);
-        ProcResult procResult = ProcHelper.execute(getContext(), commands);
-        if (procResult.getExitCode() != 0) {
-            throw new IllegalStateException("received non-zero exit code " + procResult.getExitCode() + " from Project-Env CLI");
-        }
+        try (LimitedByteArrayOutputStream stdOutOutputStream = new LimitedByteArrayOutputStream(MAX_CLI_STD_OUT_SIZE)) {
+            int exitCode = timing.time(StepPhase.CLI_RUN, () -> ProcHelper.execute(getContext(), stdOutOutputStream, commands));
+            if (exitCode != 0) {
+                throw new IllegalStateException("received non-zero exit code " + exitCode + " from Project-Env CLI");
+            }
+            if (stdOutOutputStream.isLimitExceeded()) {
+                throw new IllegalStateException("output of Project-Env CLI exceeded the limit of " + MAX_CLI_STD_OUT_SIZE + " bytes");
+            }
 
-        return ToolInfoParser.fromJson(procResult.getStdOutput());
+            return timing.time(StepPhase.JSON_PARSING, () -> ToolInfoParser.fromJson(stdOutOutputStream.toInputStream()));
+        }
     }
 
     private String[] createProjectEnvCliCommand(String executable) {
         List<String> command = new ArrayList<>();
         command.add(executable);
-        command.add("--config-file=" + configFile);
+        command.add("--config-file=" + effectiveConfigFile);
         if (cliDebug) {
             command.add("--debug");
         }
@@ -273,20 +592,18 @@ public class WithProjectEnvStepExecution extends GeneralNonBlockingStepExecution
         return command.toArray(new String[0]);
     }
 
-    private void processToolInfos(EnvVars envVars, Map<String, List<ToolInfo>> allToolInfos, AgentInfo agentInfo) throws Exception {
+    private void processToolInfos(EnvVars envVars, Map<String, List<ToolInfo>> allToolInfos, AgentInfo agentInfo, boolean handleProjectResources) throws Exception {
         for (Map.Entry<String, List<ToolInfo>> entry : allToolInfos.entrySet()) {
-            for (ToolInfo toolInfo : entry.getValue()) {
-                List<String> pathElements = toolInfo.getPathElements();
-                for (int i = 0; i < pathElements.size(); i++) {
-                    String pathElement = pathElements.get(i);
-
-                    envVars.put(PATH_VAR_PREFIX + StringUtils.upperCase(entry.getKey()) + "_" + i, pathElement);
-                }
+            if (tools != null && !tools.contains(entry.getKey())) {
+                continue;
+            }
 
-                envVars.putAll(toolInfo.getEnvironmentVariables());
+            for (ToolInfo toolInfo : entry.getValue()) {
+                ToolInfoEnvironment.apply(envVars, entry.getKey(), toolInfo);
 
-                if (StringUtils.equals(entry.getKey(), PROJECT_ENV_MAVEN_TOOL_NAME)) {
-                    handleMavenUserSettings(toolInfo, agentInfo);
+                // project resources of tools reused from a previous run have already been handled by that run
+                if (handleProjectResources && StringUtils.equals(entry.getKey(), PROJECT_ENV_MAVEN_TOOL_NAME)) {
+                    timing.timeVoid(StepPhase.MAVEN_WRAPPER, () -> handleMavenUserSettings(toolInfo, agentInfo));
                 }
             }
         }
@@ -316,30 +633,62 @@ public class WithProjectEnvStepExecution extends GeneralNonBlockingStepExecution
     }
 
     private BodyExecutionCallback createTempDirectoryCleanupCallback(FilePath tempDirectory) {
+        String timingId = timing.getId();
+
         return new TailCall() {
             @Override
             protected void finished(StepContext context) throws Exception {
-                tempDirectory.deleteRecursive();
+                Run<?, ?> run = StepContextHelper.getRun(context);
+                Computer computer = context.get(Computer.class);
+                Node node = computer != null ? computer.getNode() : null;
+
+                // the body completes without waiting for the removal of the directory
+                TempDirectoryReaper.schedule(tempDirectory).whenComplete((durationMillis, throwable) -> {
+                    OrphanedTempDirectorySweeper.unregister(tempDirectory.getName());
+                    if (throwable != null) {
+                        LOGGER.log(Level.FINE, "failed to remove temporary directory " + tempDirectory, throwable);
+                        return;
+                    }
+
+                    try {
+                        StepTimingAction.recordCleanup(run, timingId, durationMillis);
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "failed to save cleanup timing of " + run, e);
+                    }
+                    if (node != null) {
+                        ProjectEnvMetrics.get().record(node, StepPhase.CLEANUP, durationMillis);
+                    }
+                });
             }
         };
     }
 
     private void invokeBodyWithEnvVarsAndCallback(EnvVars projectEnvVars, BodyExecutionCallback callback) throws Exception {
-        getContext()
-                .newBodyInvoker()
-                .withContexts(createEnvironmentExpander(projectEnvVars))
-                .withCallback(callback)
-                .start();
+        // the checkpoint is set before the body is scheduled, since the program might be saved before start returns
+        // and a resumed step must not start the body a second time
+        bodyStarted = true;
+        try {
+            getContext()
+                    .newBodyInvoker()
+                    .withContexts(createEnvironmentExpander(projectEnvVars))
+                    .withCallback(callback)
+                    .start();
+        } catch (Exception e) {
+            bodyStarted = false;
+            throw e;
+        }
+
+        // the checkpoints are only needed to continue the start, they are not kept in the program for the whole body
+        resolvedProjectEnvVars = null;
+        cliDirectory = null;
     }
 
     private EnvironmentExpander createEnvironmentExpander(EnvVars projectEnvVars) throws Exception {
-        return EnvironmentExpander
-                .merge(getContext().get(EnvironmentExpander.class), new EnvironmentExpander() {
-                    @Override
-                    public void expand(@Nonnull EnvVars originalEnvVars) {
-                        originalEnvVars.overrideAll(projectEnvVars);
-                    }
-                });
+        return createEnvironmentExpander(getContext().get(EnvironmentExpander.class), projectEnvVars);
+    }
+
+    static EnvironmentExpander createEnvironmentExpander(EnvironmentExpander parentExpander, EnvVars projectEnvVars) {
+        return EnvironmentExpander.merge(parentExpander, CompactEnvironmentExpander.create(projectEnvVars));
     }
 
 }
\ No newline at end of file
@@ -3,12 +3,14 @@ package io.jenkins.plugins.projectenv.agent;
 import org.immutables.value.Value;
 
 import java.io.Serializable;
+import java.util.Optional;
 
 @Value.Immutable
 @Value.Style(jdkOnly = true)
 public interface AgentInfo extends Serializable {
 
     OperatingSystem getOperatingSystem();
-    String  getLineSeparator();
+    CpuArchitecture getCpuArchitecture();
+    Optional<String> getCliExecutable();
 
 }
@@ -0,0 +1,92 @@
+package io.jenkins.plugins.projectenv.agent;
+
+import hudson.Extension;
+import hudson.model.Computer;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.ComputerListener;
+import hudson.slaves.OfflineCause;
+
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Controller-side cache of the {@link AgentInfo} of each computer, so that the agent only has to be probed once per
+ * connection. The cached info is invalidated as soon as the agent goes offline or (re)connects.
+ */
+public final class AgentInfoCache {
+
+    private static final Map<String, Entry> ENTRIES = new ConcurrentHashMap<>();
+
+    private AgentInfoCache() {
+        // noop
+    }
+
+    public static AgentInfo get(Computer computer, String searchPath, String cliExecutableName) throws Exception {
+        Entry entry = ENTRIES.get(computer.getName());
+        if (entry != null && Objects.equals(entry.searchPath, searchPath)) {
+            return entry.agentInfo;
+        }
+
+        VirtualChannel channel = computer.getChannel();
+        if (channel == null) {
+            throw new IllegalStateException("computer " + computer.getName() + " is offline");
+        }
+
+        AgentInfo agentInfo;
+        if (entry != null) {
+            // the agent itself is already known, only the executable has to be resolved from the different search path
+            String cliExecutable = channel.call(new ExecutableLookupCallable(searchPath, cliExecutableName));
+            agentInfo = ImmutableAgentInfo.copyOf(entry.agentInfo).withCliExecutable(Optional.ofNullable(cliExecutable));
+        } else {
+            agentInfo = channel.call(new AgentInfoCallable(searchPath, cliExecutableName));
+        }
+        ENTRIES.put(computer.getName(), new Entry(searchPath, agentInfo));
+
+        return agentInfo;
+    }
+
+    /**
+     * @return the info of the given computer from its last probe, regardless of the search path it has been probed
+     * with, or <code>null</code> if it has not been probed since it connected
+     */
+    public static AgentInfo getIfPresent(Computer computer) {
+        Entry entry = ENTRIES.get(computer.getName());
+        return entry != null ? entry.agentInfo : null;
+    }
+
+    static void invalidate(Computer computer) {
+        ENTRIES.remove(computer.getName());
+    }
+
+    private static final class Entry {
+
+        private final String searchPath;
+        private final AgentInfo agentInfo;
+
+        private Entry(String searchPath, AgentInfo agentInfo) {
+            this.searchPath = searchPath;
+            this.agentInfo = agentInfo;
+        }
+
+    }
+
+    @Extension
+    public static class InvalidationListener extends ComputerListener {
+
+        @Override
+        public void onOnline(Computer computer, TaskListener listener) {
+            invalidate(computer);
+        }
+
+        @Override
+        public void onOffline(@Nonnull Computer computer, OfflineCause cause) {
+            invalidate(computer);
+        }
+
+    }
+
+}
@@ -1,17 +1,38 @@
 package io.jenkins.plugins.projectenv.agent;
 
 import jenkins.security.MasterToSlaveCallable;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.SystemUtils;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
 public class AgentInfoCallable extends MasterToSlaveCallable<AgentInfo, Exception> {
 
+    private static final long ROSETTA_CHECK_TIMEOUT_SECONDS = 5;
+
+    private final String searchPath;
+    private final String cliExecutableName;
+
+    public AgentInfoCallable(String searchPath, String cliExecutableName) {
+        this.searchPath = searchPath;
+        this.cliExecutableName = cliExecutableName;
+    }
+
     @Override
     public AgentInfo call() throws Exception {
         OperatingSystem operatingSystem = getOperatingSystem();
 
         return ImmutableAgentInfo.builder()
-                .lineSeparator(System.lineSeparator())
-                .operatingSystem(operatingSystem).build();
+                .operatingSystem(operatingSystem)
+                .cpuArchitecture(getCpuArchitecture(operatingSystem))
+                .cliExecutable(Optional.ofNullable(new ExecutableLookupCallable(searchPath, cliExecutableName).call()))
+                .build();
     }
 
     private OperatingSystem getOperatingSystem() {
@@ -26,4 +47,58 @@ public class AgentInfoCallable extends MasterToSlaveCallable<AgentInfo, Exceptio
         }
     }
 
+    private CpuArchitecture getCpuArchitecture(OperatingSystem operatingSystem) {
+        if (operatingSystem == OperatingSystem.WINDOWS) {
+            // unlike os.arch, these reflect the machine and not the (possibly emulated) JVM
+            String processorArchitecture = StringUtils.defaultIfEmpty(System.getenv("PROCESSOR_ARCHITEW6432"), System.getenv("PROCESSOR_ARCHITECTURE"));
+            CpuArchitecture cpuArchitecture = parseCpuArchitecture(processorArchitecture);
+            if (cpuArchitecture != CpuArchitecture.UNKNOWN) {
+                return cpuArchitecture;
+            }
+        }
+
+        CpuArchitecture cpuArchitecture = parseCpuArchitecture(SystemUtils.OS_ARCH);
+        if (operatingSystem == OperatingSystem.MACOS && cpuArchitecture == CpuArchitecture.AMD_64 && isTranslatedByRosetta()) {
+            return CpuArchitecture.AARCH_64;
+        }
+
+        return cpuArchitecture;
+    }
+
+    static CpuArchitecture parseCpuArchitecture(String architecture) {
+        switch (StringUtils.lowerCase(StringUtils.trimToEmpty(architecture), Locale.ROOT)) {
+            case "amd64":
+            case "x86_64":
+            case "x64":
+                return CpuArchitecture.AMD_64;
+            case "aarch64":
+            case "arm64":
+                return CpuArchitecture.AARCH_64;
+            default:
+                return CpuArchitecture.UNKNOWN;
+        }
+    }
+
+    private boolean isTranslatedByRosetta() {
+        try {
+            Process process = new ProcessBuilder("sysctl", "-n", "sysctl.proc_translated")
+                    .redirectErrorStream(true)
+                    .start();
+            try (InputStream inputStream = process.getInputStream()) {
+                String output = IOUtils.toString(inputStream, Charset.defaultCharset());
+                if (!process.waitFor(ROSETTA_CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                    return false;
+                }
+
+                return StringUtils.equals(output.trim(), "1");
+            }
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
 }
@@ -0,0 +1,5 @@
+package io.jenkins.plugins.projectenv.agent;
+
+public enum CpuArchitecture {
+    AMD_64, AARCH_64, UNKNOWN
+}
@@ -0,0 +1,90 @@
+package io.jenkins.plugins.projectenv.agent;
+
+import jenkins.security.MasterToSlaveCallable;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.SystemUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Resolves an executable from a search path within the agent JVM, following the semantics of {@code which} and
+ * of {@code where} (PATHEXT) on Windows, but without having to start a process.
+ */
+public class ExecutableLookupCallable extends MasterToSlaveCallable<String, RuntimeException> {
+
+    private static final String DEFAULT_PATH_EXT = ".COM;.EXE;.BAT;.CMD";
+
+    private final String searchPath;
+    private final String executableName;
+
+    public ExecutableLookupCallable(String searchPath, String executableName) {
+        this.searchPath = searchPath;
+        this.executableName = executableName;
+    }
+
+    @Override
+    public String call() {
+        return find(searchPath, executableName, SystemUtils.IS_OS_WINDOWS, System.getenv("PATHEXT")).orElse(null);
+    }
+
+    static Optional<String> find(String searchPath, String executableName, boolean windows, String pathExt) {
+        if (StringUtils.isBlank(searchPath)) {
+            return Optional.empty();
+        }
+
+        List<String> candidateNames = getCandidateNames(executableName, windows, pathExt);
+        String pathSeparator = windows ? ";" : ":";
+
+        for (String directory : StringUtils.split(searchPath, pathSeparator)) {
+            // Windows allows quoting of PATH entries which contain the path separator
+            String unquotedDirectory = StringUtils.strip(directory.trim(), "\"");
+            if (unquotedDirectory.isEmpty()) {
+                continue;
+            }
+
+            for (String candidateName : candidateNames) {
+                File candidate = new File(unquotedDirectory, candidateName);
+                if (isExecutable(candidate, windows)) {
+                    return Optional.of(candidate.getAbsolutePath());
+                }
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    private static List<String> getCandidateNames(String executableName, boolean windows, String pathExt) {
+        List<String> candidateNames = new ArrayList<>();
+        if (!windows) {
+            candidateNames.add(executableName);
+            return candidateNames;
+        }
+
+        String[] extensions = StringUtils.split(StringUtils.defaultIfBlank(pathExt, DEFAULT_PATH_EXT), ';');
+        for (String extension : extensions) {
+            if (StringUtils.endsWithIgnoreCase(executableName, extension.trim())) {
+                // the name already carries an executable extension, so it has to match exactly
+                candidateNames.clear();
+                candidateNames.add(executableName);
+                return candidateNames;
+            }
+            candidateNames.add(executableName + extension.trim().toLowerCase(Locale.ROOT));
+        }
+
+        return candidateNames;
+    }
+
+    private static boolean isExecutable(File candidate, boolean windows) {
+        if (!candidate.isFile()) {
+            return false;
+        }
+
+        return windows || Files.isExecutable(candidate.toPath());
+    }
+
+}
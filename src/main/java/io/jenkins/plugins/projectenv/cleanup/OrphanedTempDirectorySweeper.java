@@ -0,0 +1,180 @@
+package io.jenkins.plugins.projectenv.cleanup;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import hudson.slaves.WorkspaceList;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Removes the temporary directories of {@code withProjectEnv} steps which have been left behind, e.g. by builds whose
+ * agent or controller crashed. A directory is removed once it exceeds the maximum age, or once the directories of an
+ * agent exceed the maximum total size, starting with the oldest directory which exceeds the minimum age. Directories
+ * of running steps, which are registered by the step, are never removed.
+ */
+@Extension
+public class OrphanedTempDirectorySweeper extends AsyncPeriodicWork {
+
+    public static final String TEMPORARY_DIRECTORY_PREFIX = "withProjectEnv";
+
+    private static final String PROPERTY_PREFIX = OrphanedTempDirectorySweeper.class.getName() + ".";
+
+    private static final long RECURRENCE_PERIOD_MILLIS = SystemProperties.getLong(PROPERTY_PREFIX + "recurrencePeriodMillis", TimeUnit.HOURS.toMillis(1));
+    private static final long MAX_AGE_MILLIS = SystemProperties.getLong(PROPERTY_PREFIX + "maxAgeMillis", TimeUnit.DAYS.toMillis(1));
+    private static final long MIN_AGE_MILLIS = SystemProperties.getLong(PROPERTY_PREFIX + "minAgeMillis", TimeUnit.HOURS.toMillis(6));
+    private static final long MAX_TOTAL_SIZE_BYTES = SystemProperties.getLong(PROPERTY_PREFIX + "maxTotalSizeBytes", 1024L * 1024 * 1024);
+
+    private static final Set<String> ACTIVE_TEMPORARY_DIRECTORY_NAMES = ConcurrentHashMap.newKeySet();
+
+    public OrphanedTempDirectorySweeper() {
+        super("Project-Env orphaned temporary directory sweeper");
+    }
+
+    /**
+     * Marks the temporary directory with the given (unique) name as used by a running step.
+     */
+    public static void register(String temporaryDirectoryName) {
+        ACTIVE_TEMPORARY_DIRECTORY_NAMES.add(temporaryDirectoryName);
+    }
+
+    public static void unregister(String temporaryDirectoryName) {
+        ACTIVE_TEMPORARY_DIRECTORY_NAMES.remove(temporaryDirectoryName);
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_PERIOD_MILLIS;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) throws IOException, InterruptedException {
+        List<Node> nodes = new ArrayList<>(Jenkins.get().getNodes());
+        nodes.add(Jenkins.get());
+
+        for (Node node : nodes) {
+            Computer computer = node.toComputer();
+            FilePath workspaceRoot = node.getWorkspaceRoot();
+            if (computer == null || computer.isOffline() || workspaceRoot == null) {
+                continue;
+            }
+
+            try {
+                // directories of steps started after the snapshot are younger than the minimum age
+                int removed = workspaceRoot.act(new SweepCallable(WorkspaceList.COMBINATOR + "tmp", ACTIVE_TEMPORARY_DIRECTORY_NAMES,
+                        MAX_AGE_MILLIS, MIN_AGE_MILLIS, MAX_TOTAL_SIZE_BYTES));
+                if (removed > 0) {
+                    listener.getLogger().println("removed " + removed + " orphaned temporary directories on " + computer.getDisplayName());
+                }
+            } catch (IOException e) {
+                listener.error("failed to sweep temporary directories on " + computer.getDisplayName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    protected Level getNormalLoggingLevel() {
+        return Level.FINE;
+    }
+
+    static final class SweepCallable extends MasterToSlaveFileCallable<Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String temporaryDirectoryRootSuffix;
+        private final Set<String> activeTemporaryDirectoryNames;
+        private final long maxAgeMillis;
+        private final long minAgeMillis;
+        private final long maxTotalSizeBytes;
+
+        SweepCallable(String temporaryDirectoryRootSuffix, Set<String> activeTemporaryDirectoryNames,
+                      long maxAgeMillis, long minAgeMillis, long maxTotalSizeBytes) {
+            this.temporaryDirectoryRootSuffix = temporaryDirectoryRootSuffix;
+            this.activeTemporaryDirectoryNames = new HashSet<>(activeTemporaryDirectoryNames);
+            this.maxAgeMillis = maxAgeMillis;
+            this.minAgeMillis = minAgeMillis;
+            this.maxTotalSizeBytes = maxTotalSizeBytes;
+        }
+
+        /**
+         * @return the number of removed directories
+         */
+        @Override
+        public Integer invoke(File workspaceRoot, VirtualChannel channel) {
+            File[] temporaryDirectoryRoots = workspaceRoot.listFiles(file -> file.isDirectory() && file.getName().endsWith(temporaryDirectoryRootSuffix));
+            if (temporaryDirectoryRoots == null) {
+                return 0;
+            }
+
+            List<File> temporaryDirectories = new ArrayList<>();
+            for (File temporaryDirectoryRoot : temporaryDirectoryRoots) {
+                File[] children = temporaryDirectoryRoot.listFiles(file -> file.isDirectory()
+                        && file.getName().startsWith(TEMPORARY_DIRECTORY_PREFIX)
+                        && !activeTemporaryDirectoryNames.contains(file.getName()));
+                if (children != null) {
+                    temporaryDirectories.addAll(List.of(children));
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            int removed = 0;
+            long totalSizeBytes = 0;
+            List<File> remainingTemporaryDirectories = new ArrayList<>();
+            for (File temporaryDirectory : temporaryDirectories) {
+                if (now - temporaryDirectory.lastModified() > maxAgeMillis) {
+                    if (delete(temporaryDirectory)) {
+                        removed++;
+                    }
+                } else {
+                    totalSizeBytes += FileUtils.sizeOfDirectory(temporaryDirectory);
+                    remainingTemporaryDirectories.add(temporaryDirectory);
+                }
+            }
+
+            remainingTemporaryDirectories.sort(Comparator.comparingLong(File::lastModified));
+            for (File temporaryDirectory : remainingTemporaryDirectories) {
+                if (totalSizeBytes <= maxTotalSizeBytes || now - temporaryDirectory.lastModified() <= minAgeMillis) {
+                    break;
+                }
+
+                long sizeBytes = FileUtils.sizeOfDirectory(temporaryDirectory);
+                if (delete(temporaryDirectory)) {
+                    totalSizeBytes -= sizeBytes;
+                    removed++;
+                }
+            }
+
+            return removed;
+        }
+
+        private static boolean delete(File directory) {
+            try {
+                Util.deleteRecursive(directory);
+                return true;
+            } catch (IOException e) {
+                // retried with the next sweep
+                return false;
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,156 @@
+package io.jenkins.plugins.projectenv.cleanup;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Computer;
+import hudson.remoting.VirtualChannel;
+import jenkins.security.MasterToSlaveCallable;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Removes the temporary directories of finished steps in the background, so that the completion of the body does not
+ * wait for a remoting call walking the whole directory tree. Removals requested shortly after each other are sent to
+ * the agent in a single batch. Directories which cannot be removed yet (e.g. since a process which is still exiting
+ * keeps a file locked on Windows) are retried a few times, the {@link OrphanedTempDirectorySweeper} catches the rest.
+ */
+public final class TempDirectoryReaper {
+
+    private static final Logger LOGGER = Logger.getLogger(TempDirectoryReaper.class.getName());
+
+    private static final String PROPERTY_PREFIX = TempDirectoryReaper.class.getName() + ".";
+
+    private static final long BATCH_DELAY_MILLIS = SystemProperties.getLong(PROPERTY_PREFIX + "batchDelayMillis", 500L);
+    private static final long RETRY_DELAY_MILLIS = SystemProperties.getLong(PROPERTY_PREFIX + "retryDelayMillis", TimeUnit.SECONDS.toMillis(30));
+    private static final int MAX_ATTEMPTS = SystemProperties.getInteger(PROPERTY_PREFIX + "maxAttempts", 3);
+
+    private static final Map<VirtualChannel, Batch> BATCHES = new HashMap<>();
+
+    private TempDirectoryReaper() {
+        // noop
+    }
+
+    /**
+     * Schedules the removal of the given directory.
+     *
+     * @return the future of the time in milliseconds the agent took to remove the directory, which completes
+     * exceptionally if the directory could not be removed
+     */
+    public static CompletableFuture<Long> schedule(FilePath directory) {
+        // the channel of a directory on the controller is null
+        VirtualChannel channel = directory.getChannel() != null ? directory.getChannel() : FilePath.localChannel;
+
+        Removal removal = new Removal(directory.getRemote());
+        schedule(channel, removal, BATCH_DELAY_MILLIS);
+
+        return removal.result;
+    }
+
+    private static void schedule(VirtualChannel channel, Removal removal, long delayMillis) {
+        synchronized (BATCHES) {
+            Batch batch = BATCHES.get(channel);
+            if (batch == null) {
+                batch = new Batch();
+                BATCHES.put(channel, batch);
+                // the timer only triggers the flush, the remoting call must not block it
+                Timer.get().schedule(() -> Computer.threadPoolForRemoting.submit(() -> flush(channel)), delayMillis, TimeUnit.MILLISECONDS);
+            }
+            batch.removals.add(removal);
+        }
+    }
+
+    private static void flush(VirtualChannel channel) {
+        List<Removal> removals;
+        synchronized (BATCHES) {
+            removals = BATCHES.remove(channel).removals;
+        }
+
+        List<String> paths = new ArrayList<>();
+        for (Removal removal : removals) {
+            paths.add(removal.path);
+        }
+
+        Map<String, Long> durations;
+        try {
+            durations = channel.call(new RemoveDirectoriesCallable(paths));
+        } catch (Exception e) {
+            // e.g. the agent went offline, the sweeper removes the directories once it is back
+            LOGGER.log(Level.FINE, "failed to remove temporary directories " + paths, e);
+            removals.forEach(removal -> removal.result.completeExceptionally(e));
+            return;
+        }
+
+        for (Removal removal : removals) {
+            Long durationMillis = durations.get(removal.path);
+            if (durationMillis != null) {
+                removal.result.complete(durationMillis);
+            } else if (++removal.attempts < MAX_ATTEMPTS) {
+                schedule(channel, removal, RETRY_DELAY_MILLIS);
+            } else {
+                removal.result.completeExceptionally(new IOException("failed to remove temporary directory " + removal.path
+                        + " after " + removal.attempts + " attempts"));
+            }
+        }
+    }
+
+    private static final class Batch {
+
+        private final List<Removal> removals = new ArrayList<>();
+
+    }
+
+    private static final class Removal {
+
+        private final String path;
+        private final CompletableFuture<Long> result = new CompletableFuture<>();
+        private int attempts;
+
+        private Removal(String path) {
+            this.path = path;
+        }
+
+    }
+
+    private static final class RemoveDirectoriesCallable extends MasterToSlaveCallable<Map<String, Long>, RuntimeException> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> paths;
+
+        private RemoveDirectoriesCallable(List<String> paths) {
+            this.paths = paths;
+        }
+
+        /**
+         * @return the time it took to remove each directory which has been removed
+         */
+        @Override
+        public Map<String, Long> call() {
+            Map<String, Long> durations = new HashMap<>();
+            for (String path : paths) {
+                long start = System.nanoTime();
+                try {
+                    Util.deleteRecursive(new File(path));
+                    durations.put(path, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                } catch (IOException e) {
+                    // retried with the next batch
+                }
+            }
+
+            return durations;
+        }
+
+    }
+
+}
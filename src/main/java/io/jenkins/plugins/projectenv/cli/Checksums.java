@@ -0,0 +1,50 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+final class Checksums {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private Checksums() {
+        // noop
+    }
+
+    static String sha256(File file) throws IOException {
+        MessageDigest digest = createSha256Digest();
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(file.toPath()), digest)) {
+            drain(inputStream);
+        }
+
+        return Util.toHexString(digest.digest());
+    }
+
+    static String sha256(String value) {
+        return Util.toHexString(createSha256Digest().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static MessageDigest createSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    static void drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (inputStream.read(buffer) != -1) {
+            // noop
+        }
+    }
+
+}
@@ -0,0 +1,65 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Downloads Project-Env CLI archives with the {@link ResumableDownloader}, either directly on the agent or on the
+ * controller, which relays the archive to the agent afterwards.
+ */
+public final class CliArchiveDownloader {
+
+    private CliArchiveDownloader() {
+        // noop
+    }
+
+    /**
+     * @return the SHA-256 checksum of the downloaded archive
+     */
+    public static String downloadOnAgent(String archiveUrl, FilePath targetFile, TaskListener listener) throws IOException, InterruptedException {
+        return targetFile.act(new DownloadCallable(archiveUrl, ResumableDownloader.fromSystemProperties(), listener));
+    }
+
+    /**
+     * @return the SHA-256 checksum of the downloaded archive
+     */
+    public static String downloadThroughController(String archiveUrl, FilePath targetFile, TaskListener listener) throws IOException, InterruptedException {
+        File localFile = Files.createTempFile("project-env-cli", ".download").toFile();
+        try {
+            String checksum = ResumableDownloader.fromSystemProperties().download(archiveUrl, localFile, listener);
+            targetFile.copyFrom(new FilePath(localFile));
+
+            return checksum;
+        } finally {
+            Files.deleteIfExists(localFile.toPath());
+        }
+    }
+
+    private static final class DownloadCallable extends MasterToSlaveFileCallable<String> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String archiveUrl;
+        private final ResumableDownloader downloader;
+        private final TaskListener listener;
+
+        private DownloadCallable(String archiveUrl, ResumableDownloader downloader, TaskListener listener) {
+            this.archiveUrl = archiveUrl;
+            this.downloader = downloader;
+            this.listener = listener;
+        }
+
+        @Override
+        public String invoke(File targetFile, VirtualChannel channel) throws IOException, InterruptedException {
+            return downloader.download(archiveUrl, targetFile, listener);
+        }
+
+    }
+
+}
@@ -0,0 +1,173 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import javax.annotation.CheckForNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Persistent per-agent cache of extracted Project-Env CLI distributions, located under the agent root and keyed by
+ * version, OS and architecture (and the download source, if it is not one of the configured mirrors). Entries are populated in a staging directory and published with an atomic move,
+ * so that concurrent builds never see a partially extracted entry. A published entry is never replaced as long as it
+ * is valid, since other builds might execute it.
+ */
+public final class CliCache {
+
+    private static final String CACHES_DIRECTORY_NAME = "caches";
+    private static final String CLI_CACHE_DIRECTORY_NAME = "project-env-cli";
+    private static final String METADATA_FILE_NAME = ".entry";
+    private static final String STALE_DIRECTORY_INFIX = ".stale-";
+
+    private CliCache() {
+        // noop
+    }
+
+    public static FilePath getEntry(Computer computer, String cliVersion, String targetOs, String targetArchitecture) {
+        return getEntry(computer, cliVersion, targetOs, targetArchitecture, null);
+    }
+
+    /**
+     * Returns the entry for a download source which is not one of the configured mirrors, identified by the given
+     * digest. Such a source only ever provides its own entries, never the ones other builds use.
+     */
+    public static FilePath getEntry(Computer computer, String cliVersion, String targetOs, String targetArchitecture, @CheckForNull String sourceDigest) {
+        Node node = computer.getNode();
+        if (node == null) {
+            throw new IllegalStateException("failed to resolve node of computer " + computer.getName());
+        }
+
+        FilePath rootPath = node.getRootPath();
+        if (rootPath == null) {
+            throw new IllegalStateException("failed to resolve root path of node " + node.getNodeName());
+        }
+
+        return rootPath
+                .child(CACHES_DIRECTORY_NAME)
+                .child(CLI_CACHE_DIRECTORY_NAME)
+                .child(cliVersion)
+                .child(targetOs + "-" + targetArchitecture + (sourceDigest != null ? "-" + sourceDigest : ""));
+    }
+
+    public static boolean isValid(FilePath entry, String executableName) throws Exception {
+        return entry.act(new VerifyEntryCallable(executableName));
+    }
+
+    public static FilePath createStagingDirectory(FilePath entry) throws Exception {
+        FilePath parent = entry.getParent();
+        if (parent == null) {
+            throw new IllegalStateException("failed to resolve parent of cache entry " + entry);
+        }
+
+        FilePath stagingDirectory = parent.child(entry.getName() + ".tmp-" + UUID.randomUUID());
+        stagingDirectory.mkdirs();
+
+        return stagingDirectory;
+    }
+
+    public static void publish(FilePath stagingDirectory, FilePath entry, String executableName) throws Exception {
+        stagingDirectory.act(new PublishEntryCallable(entry.getRemote(), executableName));
+    }
+
+    private static boolean isValid(File entry, String executableName) throws IOException {
+        File executable = new File(entry, executableName);
+        File metadataFile = new File(entry, METADATA_FILE_NAME);
+        if (!executable.isFile() || !metadataFile.isFile()) {
+            return false;
+        }
+
+        List<String> metadata = Files.readAllLines(metadataFile.toPath(), StandardCharsets.UTF_8);
+        if (metadata.size() != 3 || !metadata.get(0).equals(String.valueOf(executable.length()))) {
+            return false;
+        }
+
+        // a cache hit only hashes the executable if its modification time changed (e.g. by a backup restore), since
+        // hashing it on every step start would cost more than the cache saves
+        return metadata.get(1).equals(String.valueOf(executable.lastModified()))
+                || metadata.get(2).equals(Checksums.sha256(executable));
+    }
+
+    private static final class VerifyEntryCallable extends MasterToSlaveFileCallable<Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String executableName;
+
+        private VerifyEntryCallable(String executableName) {
+            this.executableName = executableName;
+        }
+
+        @Override
+        public Boolean invoke(File entry, VirtualChannel channel) throws IOException {
+            return isValid(entry, executableName);
+        }
+
+    }
+
+    private static final class PublishEntryCallable extends MasterToSlaveFileCallable<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String entry;
+        private final String executableName;
+
+        private PublishEntryCallable(String entry, String executableName) {
+            this.entry = entry;
+            this.executableName = executableName;
+        }
+
+        @Override
+        public Void invoke(File stagingDirectory, VirtualChannel channel) throws IOException {
+            File entryDirectory = new File(entry);
+            if (isValid(entryDirectory, executableName)) {
+                // another build published the entry in the meantime and might already execute it
+                Util.deleteRecursive(stagingDirectory);
+                return null;
+            }
+
+            File executable = new File(stagingDirectory, executableName);
+            List<String> metadata = Arrays.asList(
+                    String.valueOf(executable.length()),
+                    String.valueOf(executable.lastModified()),
+                    Checksums.sha256(executable));
+            Files.write(new File(stagingDirectory, METADATA_FILE_NAME).toPath(), metadata, StandardCharsets.UTF_8);
+
+            if (entryDirectory.exists()) {
+                // an invalid entry is moved aside instead of being deleted in place, so that it never disappears
+                // partially from under a build which still executes it
+                File staleDirectory = new File(entry + STALE_DIRECTORY_INFIX + UUID.randomUUID());
+                Files.move(entryDirectory.toPath(), staleDirectory.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                try {
+                    Util.deleteRecursive(staleDirectory);
+                } catch (IOException e) {
+                    // e.g. an executable which is still running on Windows, the directory does not affect the cache
+                }
+            }
+
+            try {
+                Files.move(stagingDirectory.toPath(), entryDirectory.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+                // another build published the entry at the same time, its entry is kept
+                Util.deleteRecursive(stagingDirectory);
+            }
+
+            return null;
+        }
+
+    }
+
+}
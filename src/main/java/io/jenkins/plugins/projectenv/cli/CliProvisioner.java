@@ -0,0 +1,302 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.model.TaskListener;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.agent.CpuArchitecture;
+import io.jenkins.plugins.projectenv.agent.OperatingSystem;
+import io.jenkins.plugins.projectenv.config.CliMirror;
+import io.jenkins.plugins.projectenv.config.ProjectEnvConfiguration;
+import io.jenkins.plugins.projectenv.interrupt.InterruptHelper;
+import io.jenkins.plugins.projectenv.lock.AgentLock;
+import io.jenkins.plugins.projectenv.throttle.DownloadThrottle;
+import io.jenkins.plugins.projectenv.timing.ProjectEnvMetrics;
+import io.jenkins.plugins.projectenv.timing.StepPhase;
+import io.jenkins.plugins.projectenv.timing.StepTiming;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provisions the Project-Env CLI of a given version into the {@link CliCache} of an agent, downloading it from the
+ * best of the given mirrors on the agent itself if possible and through the controller otherwise. Downloads are
+ * subject to the {@link DownloadThrottle}, cache hits are not. The URL template of a step is not configured by an
+ * administrator and is therefore only downloaded from on the agent, into cache entries of its own and without affecting
+ * the mirror health or the native build misses.
+ */
+public class CliProvisioner {
+
+    public static final String CLI_EXECUTABLE_FILE_NAME = "project-env-cli";
+
+    private static final String CLI_ARCHIVE_EXTENSION_TAR_GZ = "tar.gz";
+    private static final String CLI_ARCHIVE_EXTENSION_ZIP = "zip";
+
+    private static final String CLI_EXECUTABLE_FILE_EXTENSION_WINDOWS = ".exe";
+    private static final String CLI_EXECUTABLE_FILE_EXTENSION_OTHERS = StringUtils.EMPTY;
+
+    private static final String CLI_TARGET_OS_WINDOWS = "windows";
+    private static final String CLI_TARGET_OS_MACOS = "macos";
+    private static final String CLI_TARGET_OS_LINUX = "linux";
+
+    private static final String CLI_TARGET_ARCH_AMD_64 = "amd64";
+    private static final String CLI_TARGET_ARCH_AARCH_64 = "aarch64";
+
+    private static final long NATIVE_BUILD_MISS_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    // native builds which could not be downloaded recently, so that we do not try again on every step start
+    private static final Map<String, Long> NATIVE_BUILD_MISSES = new ConcurrentHashMap<>();
+
+    private final Computer computer;
+    private final AgentInfo agentInfo;
+    private final TaskListener listener;
+    private final StepTiming timing;
+    private final List<CliMirror> mirrors;
+    // the digest of the URL template of a step, null for the configured mirrors
+    private final String stepUrlTemplateDigest;
+
+    public CliProvisioner(Computer computer, AgentInfo agentInfo, TaskListener listener, StepTiming timing, List<CliMirror> mirrors) {
+        this(computer, agentInfo, listener, timing, mirrors, null);
+    }
+
+    private CliProvisioner(Computer computer, AgentInfo agentInfo, TaskListener listener, StepTiming timing, List<CliMirror> mirrors, String stepUrlTemplateDigest) {
+        this.computer = computer;
+        this.agentInfo = agentInfo;
+        this.listener = listener;
+        this.timing = timing;
+        this.mirrors = mirrors;
+        this.stepUrlTemplateDigest = stepUrlTemplateDigest;
+    }
+
+    public static CliProvisioner forStepUrlTemplate(Computer computer, AgentInfo agentInfo, TaskListener listener, StepTiming timing, String urlTemplate) {
+        if (!CliMirror.isHttpUrlTemplate(urlTemplate)) {
+            throw new IllegalArgumentException("cliDownloadUrlTemplate must be an http(s) URL");
+        }
+
+        return new CliProvisioner(computer, agentInfo, listener, timing, Collections.singletonList(new CliMirror(urlTemplate)), Checksums.sha256(urlTemplate).substring(0, 16));
+    }
+
+    /**
+     * Returns the directory containing the Project-Env CLI executable of the given version, provisioning it first if
+     * the agent does not have a valid copy yet. The native build for the architecture of the agent is preferred, the
+     * amd64 build is used instead if there is no native build and the fallback is enabled. The temporary directory is
+     * only used if the archive has to be relayed through the controller.
+     */
+    public FilePath provision(String cliVersion, FilePath temporaryDirectory) throws Exception {
+        String nativeArchitecture = getCliTargetArchitecture(agentInfo);
+        boolean fallbackEnabled = ProjectEnvConfiguration.get().isAmd64FallbackEnabled();
+        if (nativeArchitecture.equals(CLI_TARGET_ARCH_AMD_64)) {
+            return provision(cliVersion, temporaryDirectory, CLI_TARGET_ARCH_AMD_64);
+        }
+
+        String nativeBuild = cliVersion + "/" + getCliTargetOs() + "-" + nativeArchitecture;
+        Long lastMissMillis = NATIVE_BUILD_MISSES.get(nativeBuild);
+        if (fallbackEnabled && lastMissMillis != null && System.currentTimeMillis() - lastMissMillis < NATIVE_BUILD_MISS_TTL_MILLIS) {
+            return provision(cliVersion, temporaryDirectory, CLI_TARGET_ARCH_AMD_64);
+        }
+
+        try {
+            return provision(cliVersion, temporaryDirectory, nativeArchitecture);
+        } catch (IOException e) {
+            if (!fallbackEnabled) {
+                throw e;
+            }
+
+            if (stepUrlTemplateDigest == null) {
+                NATIVE_BUILD_MISSES.put(nativeBuild, System.currentTimeMillis());
+            }
+            listener.getLogger().println("no native " + nativeArchitecture + " build of Project-Env CLI " + cliVersion
+                    + " available, falling back to " + CLI_TARGET_ARCH_AMD_64 + ": " + e.getMessage());
+
+            return provision(cliVersion, temporaryDirectory, CLI_TARGET_ARCH_AMD_64);
+        }
+    }
+
+    private FilePath provision(String cliVersion, FilePath temporaryDirectory, String architecture) throws Exception {
+        String executableName = getExecutableName(agentInfo);
+        timing.setCliArchitecture(architecture);
+
+        FilePath cacheEntry = CliCache.getEntry(computer, cliVersion, getCliTargetOs(), architecture, stepUrlTemplateDigest);
+        boolean cacheHit = CliCache.isValid(cacheEntry, executableName);
+        ProjectEnvMetrics.get().recordCliCacheLookup(cacheHit);
+        if (cacheHit) {
+            return cacheEntry;
+        }
+
+        try (AgentLock lock = AgentLock.acquire(cacheEntry)) {
+            if (lock.getWaitMillis() > 0) {
+                listener.getLogger().println("waited " + lock.getWaitMillis() + " ms for other builds to release the lock on Project-Env CLI cache entry " + cacheEntry.getRemote());
+            }
+
+            // another build might have populated the entry while we were waiting for the lock
+            if (CliCache.isValid(cacheEntry, executableName)) {
+                return cacheEntry;
+            }
+
+            FilePath stagingDirectory = CliCache.createStagingDirectory(cacheEntry);
+            try {
+                downloadAndExtractProjectEnvCliArchive(cliVersion, architecture, temporaryDirectory, stagingDirectory);
+                resolveProjectEnvCliExecutable(stagingDirectory);
+
+                CliCache.publish(stagingDirectory, cacheEntry, executableName);
+            } finally {
+                // partial downloads and extractions of an aborted build are removed as well
+                InterruptHelper.runUninterruptibly(() -> {
+                    if (stagingDirectory.exists()) {
+                        stagingDirectory.deleteRecursive();
+                    }
+                });
+            }
+        }
+
+        return cacheEntry;
+    }
+
+    public static String getExecutableName(AgentInfo agentInfo) {
+        return CLI_EXECUTABLE_FILE_NAME + (agentInfo.getOperatingSystem() == OperatingSystem.WINDOWS ?
+                CLI_EXECUTABLE_FILE_EXTENSION_WINDOWS : CLI_EXECUTABLE_FILE_EXTENSION_OTHERS);
+    }
+
+    private void downloadAndExtractProjectEnvCliArchive(String cliVersion, String architecture, FilePath temporaryDirectory, FilePath targetDirectory) throws Exception {
+        FilePath projectEnvCliArchive = downloadProjectEnvCliArchive(cliVersion, architecture, temporaryDirectory);
+        try {
+            timing.timeVoid(StepPhase.EXTRACTION, () -> extractProjectEnvCliArchive(projectEnvCliArchive, targetDirectory));
+        } finally {
+            InterruptHelper.runUninterruptibly(projectEnvCliArchive::delete);
+        }
+    }
+
+    private FilePath downloadProjectEnvCliArchive(String cliVersion, String architecture, FilePath temporaryDirectory) throws Exception {
+        List<CliMirror> orderedMirrors = stepUrlTemplateDigest == null ? MirrorSelector.order(mirrors) : mirrors;
+        PrintStream logger = listener.getLogger();
+
+        IOException lastFailure = null;
+        for (DownloadLocation location : DownloadLocation.values()) {
+            if (location == DownloadLocation.CONTROLLER && stepUrlTemplateDigest != null) {
+                // the controller must not fetch arbitrary URLs on behalf of a pipeline
+                break;
+            }
+            if (location == DownloadLocation.CONTROLLER) {
+                // the agent might not have outbound access, so we let the controller relay the archive instead
+                logger.println("falling back to download Project-Env CLI through controller");
+            }
+
+            for (CliMirror mirror : orderedMirrors) {
+                String archiveUrl = createProjectEnvCliArchiveUrl(mirror, cliVersion, architecture);
+                FilePath projectEnvCliArchive = temporaryDirectory.child(FilenameUtils.getName(archiveUrl));
+
+                try (DownloadThrottle.Permit permit = acquireDownload(mirror)) {
+                    if (permit.getWaitMillis() > 0) {
+                        logger.println("waited " + permit.getWaitMillis() + " ms for other downloads to finish");
+                    }
+
+                    // the latency of the mirror does not include the time spent in the queue
+                    long start = System.nanoTime();
+                    String checksum = timing.time(StepPhase.DOWNLOAD, () -> location == DownloadLocation.AGENT ?
+                            CliArchiveDownloader.downloadOnAgent(archiveUrl, projectEnvCliArchive, listener) :
+                            CliArchiveDownloader.downloadThroughController(archiveUrl, projectEnvCliArchive, listener));
+                    if (stepUrlTemplateDigest == null) {
+                        MirrorSelector.recordSuccess(mirror, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    }
+                    logger.println("downloaded Project-Env CLI from " + archiveUrl + " (SHA-256: " + checksum + ")");
+
+                    return projectEnvCliArchive;
+                } catch (IOException e) {
+                    // a missing archive (e.g. of a native build which is not published) does not make the mirror unhealthy
+                    if (stepUrlTemplateDigest == null && !HttpStatusException.isNotFound(e)) {
+                        MirrorSelector.recordFailure(mirror);
+                    }
+                    logger.println("failed to download Project-Env CLI from " + archiveUrl + " on " + location.getDisplayName() + ": " + e.getMessage());
+                    lastFailure = e;
+                }
+            }
+        }
+
+        throw new IOException("failed to download Project-Env CLI from any of the configured mirrors", lastFailure);
+    }
+
+    private DownloadThrottle.Permit acquireDownload(CliMirror mirror) throws InterruptedException {
+        return stepUrlTemplateDigest == null ?
+                DownloadThrottle.get().acquireDownload(computer, mirror.getUrlTemplate()) :
+                DownloadThrottle.get().acquireDownload(computer);
+    }
+
+    private String createProjectEnvCliArchiveUrl(CliMirror mirror, String cliVersion, String architecture) {
+        return mirror.createArchiveUrl(cliVersion, getCliTargetOs(), architecture, getCliArchiveExtension());
+    }
+
+    private String getCliTargetOs() {
+        OperatingSystem operatingSystem = agentInfo.getOperatingSystem();
+        switch (operatingSystem) {
+            case WINDOWS:
+                return CLI_TARGET_OS_WINDOWS;
+            case MACOS:
+                return CLI_TARGET_OS_MACOS;
+            case LINUX:
+                return CLI_TARGET_OS_LINUX;
+            default:
+                throw new IllegalArgumentException("unexpected value " + operatingSystem + " received");
+        }
+    }
+
+    private String getCliArchiveExtension() {
+        OperatingSystem operatingSystem = agentInfo.getOperatingSystem();
+        switch (operatingSystem) {
+            case WINDOWS:
+                return CLI_ARCHIVE_EXTENSION_ZIP;
+            case MACOS:
+            case LINUX:
+                return CLI_ARCHIVE_EXTENSION_TAR_GZ;
+            default:
+                throw new IllegalArgumentException("unexpected value " + operatingSystem + " received");
+        }
+    }
+
+    /**
+     * Returns the architecture of the native CLI build for the given agent. Unknown architectures get the amd64 build,
+     * which is what all agents used before native builds were supported.
+     */
+    public static String getCliTargetArchitecture(AgentInfo agentInfo) {
+        return agentInfo.getCpuArchitecture() == CpuArchitecture.AARCH_64 ? CLI_TARGET_ARCH_AARCH_64 : CLI_TARGET_ARCH_AMD_64;
+    }
+
+    private void extractProjectEnvCliArchive(FilePath archive, FilePath target) throws Exception {
+        if (StringUtils.endsWith(archive.getName(), CLI_ARCHIVE_EXTENSION_TAR_GZ)) {
+            archive.untar(target, FilePath.TarCompression.GZIP);
+        } else {
+            archive.unzip(target);
+        }
+    }
+
+    private void resolveProjectEnvCliExecutable(FilePath sourceDirectory) throws Exception {
+        FilePath executable = sourceDirectory.child(getExecutableName(agentInfo));
+        if (!executable.exists()) {
+            throw new IllegalStateException("could not find Project-Env CLI at " + executable);
+        }
+    }
+
+    private enum DownloadLocation {
+
+        AGENT("agent"),
+        CONTROLLER("controller");
+
+        private final String displayName;
+
+        DownloadLocation(String displayName) {
+            this.displayName = displayName;
+        }
+
+        String getDisplayName() {
+            return displayName;
+        }
+
+    }
+
+}
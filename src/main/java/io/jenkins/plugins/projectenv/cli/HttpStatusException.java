@@ -0,0 +1,34 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
+/**
+ * Signals an unexpected HTTP status code, which might be worth retrying (e.g. a 503) or not (e.g. a 404).
+ */
+class HttpStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+    private final boolean retryable;
+
+    HttpStatusException(int statusCode, String message, boolean retryable) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryable = retryable;
+    }
+
+    static boolean isNotFound(IOException e) {
+        return e instanceof HttpStatusException && ((HttpStatusException) e).getStatusCode() == HttpURLConnection.HTTP_NOT_FOUND;
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+
+    boolean isRetryable() {
+        return retryable;
+    }
+
+}
@@ -0,0 +1,208 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Computer;
+import io.jenkins.plugins.projectenv.config.CliMirror;
+import io.jenkins.plugins.projectenv.config.ProjectEnvConfiguration;
+import org.apache.commons.lang.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.RequestBuilder;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Controller-wide resolver of the latest Project-Env CLI version. The version is resolved from the index of the first
+ * healthy mirror providing one and cached per index for the configured TTL. Concurrent callers share a single
+ * in-flight request and an expired version is still served while it is refreshed in the background.
+ */
+@Extension
+public class LatestCliVersionResolver {
+
+    private static final Pattern LATEST_CLI_VERSION_PATTERN = Pattern.compile(".+/v(.+)$");
+
+    private static final int TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(30);
+
+    private final CloseableHttpClient httpClient = HttpClients.custom()
+            .setConnectionManager(new PoolingHttpClientConnectionManager())
+            .setDefaultRequestConfig(RequestConfig.custom()
+                    .setConnectTimeout(TIMEOUT_MILLIS)
+                    .setSocketTimeout(TIMEOUT_MILLIS)
+                    .build())
+            .disableRedirectHandling()
+            .build();
+
+    private final Map<String, CachedVersion> cachedVersions = new ConcurrentHashMap<>();
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public static LatestCliVersionResolver get() {
+        return ExtensionList.lookupSingleton(LatestCliVersionResolver.class);
+    }
+
+    public String resolve() throws InterruptedException {
+        return resolve(ProjectEnvConfiguration.get().getEffectiveCliMirrors());
+    }
+
+    public String resolve(List<CliMirror> mirrors) throws InterruptedException {
+        RuntimeException lastFailure = null;
+        for (CliMirror mirror : MirrorSelector.order(mirrors)) {
+            if (mirror.getLatestVersionUrl() == null) {
+                continue;
+            }
+
+            try {
+                return cachedVersions.computeIfAbsent(mirror.getLatestVersionUrl(), CachedVersion::new).resolve();
+            } catch (RuntimeException e) {
+                MirrorSelector.recordFailure(mirror);
+                lastFailure = e;
+            }
+        }
+
+        if (lastFailure != null) {
+            throw lastFailure;
+        }
+        throw new IllegalStateException("none of the configured mirrors provides a latest version URL");
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    private String fetchLatestCliVersion(String latestVersionUrl) {
+        try {
+            HttpUriRequest request = RequestBuilder.get().setUri(latestVersionUrl).build();
+            try (CloseableHttpResponse response = httpClient.execute(request)) {
+                int statusCode = response.getStatusLine().getStatusCode();
+                if (statusCode == 200) {
+                    return parseLatestCliVersion(EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8));
+                }
+                if (statusCode != 301 && statusCode != 302) {
+                    throw new IllegalStateException("expected redirection or index, but got " + statusCode);
+                }
+
+                Header location = response.getFirstHeader("Location");
+                if (location == null) {
+                    throw new IllegalStateException("no redirection location present");
+                }
+
+                Matcher matcher = LATEST_CLI_VERSION_PATTERN.matcher(location.getValue());
+                if (!matcher.find()) {
+                    throw new IllegalStateException("failed to extract latest Project-Env CLI version from URL " + location.getValue());
+                }
+
+                return matcher.group(1);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("failed to resolve latest Project-Env CLI version from " + latestVersionUrl, e);
+        }
+    }
+
+    static String parseLatestCliVersion(String index) {
+        String version;
+        String trimmedIndex = StringUtils.trimToEmpty(index);
+        if (trimmedIndex.startsWith("{")) {
+            JsonObject json = JsonParser.parseString(trimmedIndex).getAsJsonObject();
+            JsonElement versionElement = json.has("tag_name") ? json.get("tag_name") : json.get("version");
+            version = versionElement != null && versionElement.isJsonPrimitive() ? versionElement.getAsString() : null;
+        } else {
+            version = StringUtils.substringBefore(trimmedIndex, "\n").trim();
+        }
+
+        if (StringUtils.isEmpty(version)) {
+            throw new IllegalStateException("failed to extract latest Project-Env CLI version from index");
+        }
+
+        return StringUtils.removeStart(version, "v");
+    }
+
+    private final class CachedVersion {
+
+        private final String latestVersionUrl;
+
+        private String version;
+        private long cachedAtNanos;
+        private CompletableFuture<String> inFlightRequest;
+
+        private CachedVersion(String latestVersionUrl) {
+            this.latestVersionUrl = latestVersionUrl;
+        }
+
+        String resolve() throws InterruptedException {
+            long ttlNanos = TimeUnit.SECONDS.toNanos(ProjectEnvConfiguration.get().getLatestCliVersionCacheTtlSeconds());
+
+            CompletableFuture<String> request;
+            synchronized (this) {
+                boolean cached = version != null && ttlNanos > 0;
+                if (cached && System.nanoTime() - cachedAtNanos < ttlNanos) {
+                    hitCount.incrementAndGet();
+                    return version;
+                }
+
+                request = refresh();
+                if (cached) {
+                    hitCount.incrementAndGet();
+                    return version;
+                }
+            }
+
+            missCount.incrementAndGet();
+            try {
+                return request.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException("failed to resolve latest Project-Env CLI version", e.getCause());
+            }
+        }
+
+        private synchronized CompletableFuture<String> refresh() {
+            if (inFlightRequest == null) {
+                // the HTTP request must not block the shared timer
+                CompletableFuture<String> request = CompletableFuture.supplyAsync(() -> fetchLatestCliVersion(latestVersionUrl), Computer.threadPoolForRemoting);
+                inFlightRequest = request;
+                request.whenComplete((resolvedVersion, error) -> onRequestCompleted(request, resolvedVersion));
+            }
+
+            return inFlightRequest;
+        }
+
+        private synchronized void onRequestCompleted(CompletableFuture<String> request, String resolvedVersion) {
+            if (resolvedVersion != null) {
+                version = resolvedVersion;
+                cachedAtNanos = System.nanoTime();
+            }
+            if (inFlightRequest == request) {
+                inFlightRequest = null;
+            }
+        }
+
+    }
+
+}
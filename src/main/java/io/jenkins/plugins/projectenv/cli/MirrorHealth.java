@@ -0,0 +1,72 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import jenkins.util.SystemProperties;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Health and latency of a single CLI mirror, as observed by this controller. The latency is an exponentially weighted
+ * moving average of successful downloads, a mirror is considered unhealthy for a cool-down period after it failed.
+ */
+@ExportedBean
+public class MirrorHealth {
+
+    private static final long COOL_DOWN_MILLIS = SystemProperties.getLong(MirrorHealth.class.getName() + ".coolDownMillis", TimeUnit.MINUTES.toMillis(1));
+
+    private static final double LATENCY_SMOOTHING_FACTOR = 0.3;
+
+    private final String urlTemplate;
+    private long latencyMillis = -1;
+    private long successCount;
+    private long failureCount;
+    private int consecutiveFailures;
+    private long lastFailureAtMillis;
+
+    MirrorHealth(String urlTemplate) {
+        this.urlTemplate = urlTemplate;
+    }
+
+    synchronized void recordSuccess(long durationMillis) {
+        latencyMillis = latencyMillis < 0 ? durationMillis :
+                Math.round(LATENCY_SMOOTHING_FACTOR * durationMillis + (1 - LATENCY_SMOOTHING_FACTOR) * latencyMillis);
+        successCount++;
+        consecutiveFailures = 0;
+    }
+
+    synchronized void recordFailure() {
+        failureCount++;
+        consecutiveFailures++;
+        lastFailureAtMillis = System.currentTimeMillis();
+    }
+
+    @Exported
+    public String getUrlTemplate() {
+        return urlTemplate;
+    }
+
+    /**
+     * @return the smoothed download duration in milliseconds or -1 if no download succeeded yet
+     */
+    @Exported
+    public synchronized long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    @Exported
+    public synchronized long getSuccessCount() {
+        return successCount;
+    }
+
+    @Exported
+    public synchronized long getFailureCount() {
+        return failureCount;
+    }
+
+    @Exported
+    public synchronized boolean isHealthy() {
+        return consecutiveFailures == 0 || System.currentTimeMillis() - lastFailureAtMillis > COOL_DOWN_MILLIS;
+    }
+
+}
@@ -0,0 +1,54 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import io.jenkins.plugins.projectenv.config.CliMirror;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Orders the configured CLI mirrors by their observed health and latency. Healthy mirrors come first, the fastest of
+ * them first, mirrors without any measurement yet are preferred so that their latency gets known. Unhealthy mirrors
+ * are kept at the end (in their configured order) as a last resort.
+ */
+public final class MirrorSelector {
+
+    private static final Map<String, MirrorHealth> HEALTH = new ConcurrentHashMap<>();
+
+    private MirrorSelector() {
+        // noop
+    }
+
+    public static List<CliMirror> order(List<CliMirror> mirrors) {
+        List<CliMirror> orderedMirrors = new ArrayList<>(mirrors);
+        // the sort is stable, so the configured order is kept for mirrors which are equally good
+        orderedMirrors.sort(Comparator
+                .comparing((CliMirror mirror) -> !getHealth(mirror).isHealthy())
+                .thenComparingLong(mirror -> getHealth(mirror).isHealthy() ? Math.max(0, getHealth(mirror).getLatencyMillis()) : 0));
+
+        return orderedMirrors;
+    }
+
+    public static void recordSuccess(CliMirror mirror, long durationMillis) {
+        getHealth(mirror).recordSuccess(durationMillis);
+    }
+
+    public static void recordFailure(CliMirror mirror) {
+        getHealth(mirror).recordFailure();
+    }
+
+    public static List<MirrorHealth> getHealth() {
+        return new ArrayList<>(HEALTH.values());
+    }
+
+    static MirrorHealth getHealth(CliMirror mirror) {
+        return HEALTH.computeIfAbsent(mirror.getUrlTemplate(), MirrorHealth::new);
+    }
+
+    static void reset() {
+        HEALTH.clear();
+    }
+
+}
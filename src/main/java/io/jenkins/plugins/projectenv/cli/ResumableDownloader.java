@@ -0,0 +1,351 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.model.TaskListener;
+import jenkins.util.SystemProperties;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads a file over HTTP with bounded retries and jittered exponential backoff. Interrupted transfers are resumed
+ * with range requests, large files are fetched in parallel chunks if the server accepts ranges, and the SHA-256
+ * checksum of the result is verified against a <code>.sha256</code> file next to it, if the server provides one.
+ */
+public class ResumableDownloader implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String PROPERTY_PREFIX = ResumableDownloader.class.getName() + ".";
+
+    private static final int CONNECT_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(30);
+    private static final int READ_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(60);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String CHECKSUM_FILE_EXTENSION = ".sha256";
+    private static final int MAX_CHECKSUM_FILE_SIZE = 1024;
+
+    private static final Pattern SHA_256_PATTERN = Pattern.compile("^([0-9a-fA-F]{64})\\b");
+    private static final Pattern CONTENT_RANGE_START_PATTERN = Pattern.compile("^bytes (\\d+)-");
+
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int parallelChunks;
+    private final long minChunkSizeBytes;
+
+    public ResumableDownloader(int maxAttempts, long initialBackoffMillis, long maxBackoffMillis, int parallelChunks, long minChunkSizeBytes) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = Math.max(0, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+        this.parallelChunks = Math.max(1, parallelChunks);
+        this.minChunkSizeBytes = Math.max(1, minChunkSizeBytes);
+    }
+
+    public static ResumableDownloader fromSystemProperties() {
+        return new ResumableDownloader(
+                SystemProperties.getInteger(PROPERTY_PREFIX + "maxAttempts", 5),
+                SystemProperties.getLong(PROPERTY_PREFIX + "initialBackoffMillis", TimeUnit.SECONDS.toMillis(1)),
+                SystemProperties.getLong(PROPERTY_PREFIX + "maxBackoffMillis", TimeUnit.SECONDS.toMillis(30)),
+                SystemProperties.getInteger(PROPERTY_PREFIX + "parallelChunks", 4),
+                SystemProperties.getLong(PROPERTY_PREFIX + "minChunkSizeBytes", 4L * 1024 * 1024));
+    }
+
+    /**
+     * @return the SHA-256 checksum of the downloaded file
+     */
+    public String download(String url, File targetFile, TaskListener listener) throws IOException, InterruptedException {
+        File parentDirectory = targetFile.getParentFile();
+        if (parentDirectory != null) {
+            Files.createDirectories(parentDirectory.toPath());
+        }
+
+        if (!isHttpUrl(url)) {
+            // e.g. a mirror on a shared file system, which neither needs retries nor supports ranges
+            try (InputStream inputStream = new URL(url).openStream()) {
+                Files.copy(inputStream, targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            return Checksums.sha256(targetFile);
+        }
+
+        try (FileChannel channel = FileChannel.open(targetFile.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long length = parallelChunks > 1 ? probeRangedLength(url) : -1;
+            if (length >= 2 * minChunkSizeBytes) {
+                try {
+                    downloadSegments(url, channel, createChunks(length), listener);
+                } catch (HttpStatusException e) {
+                    if (e.getStatusCode() != HttpURLConnection.HTTP_OK) {
+                        throw e;
+                    }
+                    // the server announced range support, but does not honor it
+                    channel.truncate(0);
+                    downloadSegments(url, channel, Collections.singletonList(new Segment(0, -1)), listener);
+                }
+            } else {
+                downloadSegments(url, channel, Collections.singletonList(new Segment(0, -1)), listener);
+            }
+        } catch (IOException | InterruptedException e) {
+            // a partial download must not be mistaken for a complete one
+            Files.deleteIfExists(targetFile.toPath());
+            throw e;
+        }
+
+        String checksum = Checksums.sha256(targetFile);
+        String expectedChecksum = fetchExpectedChecksum(url);
+        if (expectedChecksum != null && !StringUtils.equalsIgnoreCase(checksum, expectedChecksum)) {
+            Files.deleteIfExists(targetFile.toPath());
+            throw new IOException("checksum of " + url + " is " + checksum + ", but expected " + expectedChecksum);
+        }
+
+        return checksum;
+    }
+
+    private List<Segment> createChunks(long length) {
+        int chunkCount = (int) Math.min(parallelChunks, length / minChunkSizeBytes);
+        long chunkSize = (length + chunkCount - 1) / chunkCount;
+
+        List<Segment> chunks = new ArrayList<>();
+        for (long start = 0; start < length; start += chunkSize) {
+            chunks.add(new Segment(start, Math.min(start + chunkSize, length) - 1));
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Downloads the given segments on worker threads, while the calling thread only waits for them. If the calling
+     * thread gets interrupted (e.g. since the build has been aborted), the open connections are closed, so that the
+     * workers do not stay blocked in a read until it times out.
+     */
+    private void downloadSegments(String url, FileChannel channel, List<Segment> segments, TaskListener listener) throws IOException, InterruptedException {
+        Set<HttpURLConnection> openConnections = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(segments.size(), runnable -> {
+            Thread thread = new Thread(runnable, "Project-Env download of " + url);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Void>> transfers = new ArrayList<>();
+            for (Segment segment : segments) {
+                transfers.add(executor.submit(() -> {
+                    downloadSegment(url, channel, segment, openConnections, listener);
+                    return null;
+                }));
+            }
+
+            for (Future<Void> transfer : transfers) {
+                transfer.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof InterruptedException) {
+                throw (InterruptedException) e.getCause();
+            }
+            throw new IOException("failed to download " + url, e.getCause());
+        } finally {
+            // the transfers still running must not write into the file once it gets truncated, closed or deleted
+            executor.shutdownNow();
+            openConnections.forEach(HttpURLConnection::disconnect);
+            executor.awaitTermination(READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void downloadSegment(String url, FileChannel channel, Segment segment, Set<HttpURLConnection> openConnections,
+                                 TaskListener listener) throws IOException, InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transfer(url, channel, segment, openConnections);
+                return;
+            } catch (IOException e) {
+                if (attempt >= maxAttempts || (e instanceof HttpStatusException && !((HttpStatusException) e).isRetryable())) {
+                    throw e;
+                }
+
+                long backoffMillis = computeBackoffMillis(attempt);
+                listener.getLogger().println("retrying download of " + url + " at byte " + segment.position + " in " + backoffMillis
+                        + " ms, since attempt " + attempt + "/" + maxAttempts + " failed: " + e.getMessage());
+                Thread.sleep(backoffMillis);
+            }
+        }
+    }
+
+    private void transfer(String url, FileChannel channel, Segment segment, Set<HttpURLConnection> openConnections) throws IOException, InterruptedException {
+        HttpURLConnection connection = openConnection(url, "GET");
+        openConnections.add(connection);
+        try {
+            boolean ranged = segment.isBounded() || segment.position > segment.start;
+            if (ranged) {
+                connection.setRequestProperty("Range", "bytes=" + segment.position + "-" + (segment.isBounded() ? segment.end : ""));
+            }
+
+            int statusCode = connection.getResponseCode();
+            if (statusCode == HttpURLConnection.HTTP_OK) {
+                if (segment.isBounded()) {
+                    throw new HttpStatusException(statusCode, "server ignored range request for " + url, false);
+                }
+                // the server does not support resuming, so we have to start over
+                segment.position = segment.start;
+                channel.truncate(segment.start);
+            } else if (statusCode == HttpURLConnection.HTTP_PARTIAL) {
+                verifyContentRangeStart(connection, segment.position);
+            } else if (statusCode == 416 && !segment.isBounded() && segment.position > segment.start) {
+                // the previous attempt received everything, only the end of the response got lost
+                return;
+            } else {
+                throw new HttpStatusException(statusCode, "received status code " + statusCode + " while downloading " + url, isRetryable(statusCode));
+            }
+
+            long contentLength = connection.getContentLengthLong();
+            long expectedEnd = segment.isBounded() ? segment.end + 1 : (contentLength >= 0 ? segment.position + contentLength : -1);
+
+            try (InputStream inputStream = connection.getInputStream()) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+
+                    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                    while (byteBuffer.hasRemaining()) {
+                        segment.position += channel.write(byteBuffer, segment.position);
+                    }
+                }
+            }
+
+            if (expectedEnd >= 0 && segment.position != expectedEnd) {
+                throw new IOException("premature end of " + url + " at byte " + segment.position + ", expected " + expectedEnd + " bytes");
+            }
+        } finally {
+            openConnections.remove(connection);
+            connection.disconnect();
+        }
+    }
+
+    private long probeRangedLength(String url) {
+        try {
+            HttpURLConnection connection = openConnection(url, "HEAD");
+            try {
+                boolean acceptsRanges = StringUtils.equalsIgnoreCase(connection.getHeaderField("Accept-Ranges"), "bytes");
+                if (connection.getResponseCode() != HttpURLConnection.HTTP_OK || !acceptsRanges) {
+                    return -1;
+                }
+
+                return connection.getContentLengthLong();
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            // the regular download will retry and report the failure
+            return -1;
+        }
+    }
+
+    private String fetchExpectedChecksum(String url) {
+        try {
+            HttpURLConnection connection = openConnection(url + CHECKSUM_FILE_EXTENSION, "GET");
+            try {
+                if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                    return null;
+                }
+
+                byte[] content;
+                try (InputStream inputStream = connection.getInputStream()) {
+                    content = IOUtils.toByteArray(new BoundedInputStream(inputStream, MAX_CHECKSUM_FILE_SIZE));
+                }
+
+                Matcher matcher = SHA_256_PATTERN.matcher(new String(content, StandardCharsets.UTF_8).trim());
+                return matcher.find() ? matcher.group(1).toLowerCase(Locale.ROOT) : null;
+            } finally {
+                connection.disconnect();
+            }
+        } catch (IOException e) {
+            // the checksum file is optional
+            return null;
+        }
+    }
+
+    private void verifyContentRangeStart(HttpURLConnection connection, long expectedStart) throws IOException {
+        Matcher matcher = CONTENT_RANGE_START_PATTERN.matcher(StringUtils.defaultString(connection.getHeaderField("Content-Range")));
+        if (!matcher.find() || Long.parseLong(matcher.group(1)) != expectedStart) {
+            throw new IOException("received unexpected content range " + connection.getHeaderField("Content-Range") + ", expected start at byte " + expectedStart);
+        }
+    }
+
+    private long computeBackoffMillis(int attempt) {
+        long backoffMillis = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+
+        // half of the backoff is randomized, so that builds failing at the same time do not retry in lockstep
+        return backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
+    }
+
+    private static boolean isHttpUrl(String url) {
+        String lowerCaseUrl = url.toLowerCase(Locale.ROOT);
+
+        return lowerCaseUrl.startsWith("http://") || lowerCaseUrl.startsWith("https://");
+    }
+
+    private static boolean isRetryable(int statusCode) {
+        return statusCode >= 500 || statusCode == 408 || statusCode == 429;
+    }
+
+    private static HttpURLConnection openConnection(String url, String method) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+        connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+
+        return connection;
+    }
+
+    private static final class Segment {
+
+        private final long start;
+        private final long end;
+        private long position;
+
+        private Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.position = start;
+        }
+
+        private boolean isBounded() {
+            return end >= 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,116 @@
+package io.jenkins.plugins.projectenv.config;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import org.apache.commons.lang.StringUtils;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+
+/**
+ * Location the Project-Env CLI archives are downloaded from. The URL template is formatted with the CLI version
+ * (<code>{0}</code>), the target OS (<code>{1}</code>), the target architecture (<code>{2}</code>) and the archive
+ * extension (<code>{3}</code>).
+ */
+public class CliMirror extends AbstractDescribableImpl<CliMirror> {
+
+    public static final String GITHUB_URL_TEMPLATE = "https://github.com/Project-Env/project-env-core/releases/download/v{0}/cli-{0}-{1}-{2}.{3}";
+    public static final String GITHUB_LATEST_VERSION_URL = "https://github.com/Project-Env/project-env-cli/releases/latest";
+
+    private final String urlTemplate;
+    private String latestVersionUrl;
+
+    @DataBoundConstructor
+    public CliMirror(String urlTemplate) {
+        String validationError = validateUrlTemplate(urlTemplate);
+        if (validationError != null) {
+            throw new IllegalArgumentException(validationError);
+        }
+
+        this.urlTemplate = urlTemplate.trim();
+    }
+
+    public static CliMirror github() {
+        CliMirror mirror = new CliMirror(GITHUB_URL_TEMPLATE);
+        mirror.setLatestVersionUrl(GITHUB_LATEST_VERSION_URL);
+
+        return mirror;
+    }
+
+    public String getUrlTemplate() {
+        return urlTemplate;
+    }
+
+    public String getLatestVersionUrl() {
+        return latestVersionUrl;
+    }
+
+    /**
+     * The URL the latest CLI version can be resolved from. This is either a URL redirecting to the latest release
+     * (like GitHub does) or an index returning the version as plain text or as JSON (with a <code>tag_name</code> or
+     * <code>version</code> property).
+     */
+    @DataBoundSetter
+    public void setLatestVersionUrl(String latestVersionUrl) {
+        this.latestVersionUrl = Util.fixEmptyAndTrim(latestVersionUrl);
+    }
+
+    /**
+     * Returns whether the given URL template is an http(s) URL, which is the only kind of URL template a step may
+     * provide.
+     */
+    public static boolean isHttpUrlTemplate(String urlTemplate) {
+        String lowerCaseUrlTemplate = StringUtils.lowerCase(urlTemplate, Locale.ROOT);
+
+        return StringUtils.startsWith(lowerCaseUrlTemplate, "http://") || StringUtils.startsWith(lowerCaseUrlTemplate, "https://");
+    }
+
+    /**
+     * @return the reason why the given URL template cannot be used or <code>null</code>, if it is valid
+     */
+    static String validateUrlTemplate(String urlTemplate) {
+        String trimmedUrlTemplate = Util.fixEmptyAndTrim(urlTemplate);
+        if (trimmedUrlTemplate == null) {
+            return "urlTemplate must not be blank";
+        }
+
+        try {
+            new MessageFormat(trimmedUrlTemplate);
+        } catch (IllegalArgumentException e) {
+            return "urlTemplate is not a valid template: " + e.getMessage();
+        }
+
+        return null;
+    }
+
+    public String createArchiveUrl(String cliVersion, String targetOs, String targetArchitecture, String archiveExtension) {
+        return MessageFormat.format(urlTemplate, cliVersion, targetOs, targetArchitecture, archiveExtension);
+    }
+
+    @Extension
+    @Symbol("cliMirror")
+    public static class DescriptorImpl extends Descriptor<CliMirror> {
+
+        public FormValidation doCheckUrlTemplate(@QueryParameter String value) {
+            String validationError = validateUrlTemplate(value);
+            if (validationError != null) {
+                return FormValidation.error(validationError);
+            }
+
+            if (!value.contains("{0}")) {
+                return FormValidation.warning("urlTemplate does not contain the CLI version ({0})");
+            }
+
+            return FormValidation.ok();
+        }
+
+    }
+
+}
@@ -0,0 +1,225 @@
+package io.jenkins.plugins.projectenv.config;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.Util;
+import hudson.model.Label;
+import hudson.model.Node;
+import jenkins.model.GlobalConfiguration;
+import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.StaplerRequest;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Extension
+@Symbol("projectEnv")
+public class ProjectEnvConfiguration extends GlobalConfiguration {
+
+    private static final long DEFAULT_LATEST_CLI_VERSION_CACHE_TTL_SECONDS = 300;
+
+    private static final int DEFAULT_MAX_CONCURRENT_PREWARMS = 2;
+
+    private static final long DEFAULT_MAX_TOOLS_SNAPSHOTS_SIZE_MEGABYTES = 10 * 1024;
+    private static final String DEFAULT_TOOLS_SNAPSHOTS_DIRECTORY_NAME = "project-env-tools-snapshots";
+
+    private long latestCliVersionCacheTtlSeconds = DEFAULT_LATEST_CLI_VERSION_CACHE_TTL_SECONDS;
+
+    private List<CliMirror> cliMirrors = new ArrayList<>();
+    private boolean amd64FallbackEnabled = true;
+
+    private String prewarmLabelExpression;
+    private String prewarmCliVersion;
+    private int maxConcurrentPrewarms = DEFAULT_MAX_CONCURRENT_PREWARMS;
+
+    private boolean toolsSnapshotsEnabled;
+    private String toolsSnapshotsDirectory;
+    private long maxToolsSnapshotsSizeMegabytes = DEFAULT_MAX_TOOLS_SNAPSHOTS_SIZE_MEGABYTES;
+
+    private int maxConcurrentDownloads;
+    private int maxConcurrentDownloadsPerAgent;
+    private int maxConcurrentDownloadsPerMirror;
+
+    public ProjectEnvConfiguration() {
+        load();
+    }
+
+    public static ProjectEnvConfiguration get() {
+        return ExtensionList.lookupSingleton(ProjectEnvConfiguration.class);
+    }
+
+    public long getLatestCliVersionCacheTtlSeconds() {
+        return latestCliVersionCacheTtlSeconds;
+    }
+
+    @DataBoundSetter
+    public void setLatestCliVersionCacheTtlSeconds(long latestCliVersionCacheTtlSeconds) {
+        this.latestCliVersionCacheTtlSeconds = Math.max(0, latestCliVersionCacheTtlSeconds);
+        save();
+    }
+
+    public List<CliMirror> getCliMirrors() {
+        return cliMirrors != null ? Collections.unmodifiableList(cliMirrors) : Collections.emptyList();
+    }
+
+    @DataBoundSetter
+    public void setCliMirrors(List<CliMirror> cliMirrors) {
+        this.cliMirrors = cliMirrors != null ? new ArrayList<>(cliMirrors) : new ArrayList<>();
+        save();
+    }
+
+    /**
+     * Returns the mirrors the CLI should be downloaded from, in their configured order. GitHub is used if no mirror is
+     * configured.
+     */
+    public List<CliMirror> getEffectiveCliMirrors() {
+        // mirrors persisted before their URL template was validated may not have one
+        List<CliMirror> mirrors = getCliMirrors().stream()
+                .filter(mirror -> mirror.getUrlTemplate() != null)
+                .collect(Collectors.toList());
+        if (mirrors.isEmpty()) {
+            return Collections.singletonList(CliMirror.github());
+        }
+
+        return mirrors;
+    }
+
+    public boolean isAmd64FallbackEnabled() {
+        return amd64FallbackEnabled;
+    }
+
+    @DataBoundSetter
+    public void setAmd64FallbackEnabled(boolean amd64FallbackEnabled) {
+        this.amd64FallbackEnabled = amd64FallbackEnabled;
+        save();
+    }
+
+    public String getPrewarmLabelExpression() {
+        return prewarmLabelExpression;
+    }
+
+    @DataBoundSetter
+    public void setPrewarmLabelExpression(String prewarmLabelExpression) {
+        this.prewarmLabelExpression = Util.fixEmptyAndTrim(prewarmLabelExpression);
+        save();
+    }
+
+    public String getPrewarmCliVersion() {
+        return prewarmCliVersion;
+    }
+
+    @DataBoundSetter
+    public void setPrewarmCliVersion(String prewarmCliVersion) {
+        this.prewarmCliVersion = Util.fixEmptyAndTrim(prewarmCliVersion);
+        save();
+    }
+
+    public int getMaxConcurrentPrewarms() {
+        return maxConcurrentPrewarms;
+    }
+
+    @DataBoundSetter
+    public void setMaxConcurrentPrewarms(int maxConcurrentPrewarms) {
+        this.maxConcurrentPrewarms = Math.max(1, maxConcurrentPrewarms);
+        save();
+    }
+
+    public boolean isToolsSnapshotsEnabled() {
+        return toolsSnapshotsEnabled;
+    }
+
+    @DataBoundSetter
+    public void setToolsSnapshotsEnabled(boolean toolsSnapshotsEnabled) {
+        this.toolsSnapshotsEnabled = toolsSnapshotsEnabled;
+        save();
+    }
+
+    public String getToolsSnapshotsDirectory() {
+        return toolsSnapshotsDirectory;
+    }
+
+    @DataBoundSetter
+    public void setToolsSnapshotsDirectory(String toolsSnapshotsDirectory) {
+        this.toolsSnapshotsDirectory = Util.fixEmptyAndTrim(toolsSnapshotsDirectory);
+        save();
+    }
+
+    /**
+     * Returns the directory on the controller the tools snapshots are stored in, which defaults to a directory in the
+     * Jenkins home.
+     */
+    public File getEffectiveToolsSnapshotsDirectory() {
+        if (toolsSnapshotsDirectory != null) {
+            return new File(toolsSnapshotsDirectory);
+        }
+
+        return new File(Jenkins.get().getRootDir(), DEFAULT_TOOLS_SNAPSHOTS_DIRECTORY_NAME);
+    }
+
+    public long getMaxToolsSnapshotsSizeMegabytes() {
+        return maxToolsSnapshotsSizeMegabytes;
+    }
+
+    @DataBoundSetter
+    public void setMaxToolsSnapshotsSizeMegabytes(long maxToolsSnapshotsSizeMegabytes) {
+        this.maxToolsSnapshotsSizeMegabytes = Math.max(1, maxToolsSnapshotsSizeMegabytes);
+        save();
+    }
+
+    public int getMaxConcurrentDownloads() {
+        return maxConcurrentDownloads;
+    }
+
+    @DataBoundSetter
+    public void setMaxConcurrentDownloads(int maxConcurrentDownloads) {
+        this.maxConcurrentDownloads = Math.max(0, maxConcurrentDownloads);
+        save();
+    }
+
+    public int getMaxConcurrentDownloadsPerAgent() {
+        return maxConcurrentDownloadsPerAgent;
+    }
+
+    @DataBoundSetter
+    public void setMaxConcurrentDownloadsPerAgent(int maxConcurrentDownloadsPerAgent) {
+        this.maxConcurrentDownloadsPerAgent = Math.max(0, maxConcurrentDownloadsPerAgent);
+        save();
+    }
+
+    public int getMaxConcurrentDownloadsPerMirror() {
+        return maxConcurrentDownloadsPerMirror;
+    }
+
+    @DataBoundSetter
+    public void setMaxConcurrentDownloadsPerMirror(int maxConcurrentDownloadsPerMirror) {
+        this.maxConcurrentDownloadsPerMirror = Math.max(0, maxConcurrentDownloadsPerMirror);
+        save();
+    }
+
+    /**
+     * Returns whether agents of the given node should be pre-warmed when they come online. Pre-warming is opt-in, so
+     * no node is pre-warmed as long as no label expression is configured.
+     */
+    public boolean isPrewarmEnabledFor(Node node) {
+        if (prewarmLabelExpression == null) {
+            return false;
+        }
+
+        Label label = Jenkins.get().getLabel(prewarmLabelExpression);
+        return label != null && label.matches(node);
+    }
+
+    @Override
+    public boolean configure(StaplerRequest req, JSONObject json) throws FormException {
+        // repeatable properties are missing from the submitted form if all of them have been removed
+        cliMirrors = new ArrayList<>();
+        return super.configure(req, json);
+    }
+
+}
@@ -0,0 +1,293 @@
+package io.jenkins.plugins.projectenv.configfile;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class ConfigFileHelper {
+
+    private static final Pattern TOOLS_DIRECTORY_PATTERN = Pattern.compile("^\\s*tools_directory\\s*=\\s*[\"']([^\"']*)[\"']");
+
+    private static final String DEFAULT_TOOLS_DIRECTORY = ".tools";
+
+    private ConfigFileHelper() {
+        // noop
+    }
+
+    /**
+     * Resolves the tools directory configured in the given Project-Env configuration file, relative to the workspace.
+     */
+    public static FilePath resolveToolsDirectory(FilePath workspace, String configFile) throws Exception {
+        return workspace.child(workspace.act(new ResolveToolsDirectoryCallable(configFile)));
+    }
+
+    /**
+     * Writes a copy of the given Project-Env configuration file next to it, which only contains the sections of the
+     * given tools, so that the Project-Env CLI only provisions these tools. Every call writes a copy with a unique
+     * name, which has to be removed with {@link #removeToolsSubsetConfigFile(FilePath, String)} once the CLI ran.
+     *
+     * @return the path of the reduced configuration file relative to the workspace or the given configuration file, if
+     * it does not exist
+     */
+    public static String createToolsSubsetConfigFile(FilePath workspace, String configFile, List<String> tools) throws Exception {
+        return workspace.act(new CreateToolsSubsetConfigFileCallable(configFile, tools));
+    }
+
+    public static void removeToolsSubsetConfigFile(FilePath workspace, String toolsSubsetConfigFile) throws Exception {
+        workspace.child(toolsSubsetConfigFile).delete();
+    }
+
+    /**
+     * @return an identifier of the given configuration file reduced to the given tools, which stays the same for every
+     * copy written by {@link #createToolsSubsetConfigFile(FilePath, String, List)}
+     */
+    public static String createToolsSubsetConfigFileId(String configFile, List<String> tools) {
+        return configFile + "#" + String.join(",", new TreeSet<>(tools));
+    }
+
+    static List<String> reduceToTools(List<String> lines, Collection<String> tools) {
+        List<String> reducedLines = new ArrayList<>();
+        Set<String> configuredTools = new HashSet<>();
+
+        // top-level properties (e.g. the tools directory) are always kept, every table (including array tables like
+        // [[jdk.post_extraction_commands]]) belongs to the tool named by the first part of its key
+        TomlLineScanner scanner = new TomlLineScanner();
+        boolean keepLines = true;
+        for (String line : lines) {
+            String tool = scanner.scan(line);
+            if (tool != null) {
+                configuredTools.add(tool);
+                keepLines = tools.contains(tool);
+            }
+
+            if (keepLines) {
+                reducedLines.add(line);
+            }
+        }
+
+        for (String tool : tools) {
+            if (!configuredTools.contains(tool)) {
+                throw new IllegalStateException("tool " + tool + " is not configured in the Project-Env configuration file");
+            }
+        }
+
+        return reducedLines;
+    }
+
+    static String readToolsDirectory(List<String> lines) {
+        TomlLineScanner scanner = new TomlLineScanner();
+        for (String line : lines) {
+            boolean continuesValue = scanner.isInsideValue();
+            if (scanner.scan(line) != null) {
+                // the tools directory is a top-level property, so it has to be defined before the first table
+                break;
+            }
+
+            Matcher matcher = TOOLS_DIRECTORY_PATTERN.matcher(line);
+            if (!continuesValue && matcher.find()) {
+                return matcher.group(1);
+            }
+        }
+
+        return DEFAULT_TOOLS_DIRECTORY;
+    }
+
+    /**
+     * Scans a TOML document line by line and detects table headers. It keeps track of multi-line strings and of arrays
+     * spanning multiple lines, so that their lines are never taken for table headers.
+     */
+    static final class TomlLineScanner {
+
+        private String multiLineStringDelimiter;
+        private int depth;
+
+        boolean isInsideValue() {
+            return multiLineStringDelimiter != null || depth > 0;
+        }
+
+        /**
+         * @return the first part of the key of the table (or array table) declared by the given line or
+         * <code>null</code>, if it does not declare a table
+         */
+        String scan(String line) {
+            if (!isInsideValue() && line.trim().startsWith("[")) {
+                return parseTableName(line.trim());
+            }
+
+            int i = 0;
+            while (i < line.length()) {
+                if (multiLineStringDelimiter != null) {
+                    i = skipMultiLineString(line, i);
+                    continue;
+                }
+
+                char c = line.charAt(i);
+                if (c == '#') {
+                    break;
+                } else if (line.startsWith("\"\"\"", i) || line.startsWith("'''", i)) {
+                    multiLineStringDelimiter = line.substring(i, i + 3);
+                    i += 3;
+                } else if (c == '"' || c == '\'') {
+                    i = skipString(line, i + 1, c);
+                } else {
+                    if (c == '[' || c == '{') {
+                        depth++;
+                    } else if ((c == ']' || c == '}') && depth > 0) {
+                        depth--;
+                    }
+                    i++;
+                }
+            }
+
+            return null;
+        }
+
+        private int skipMultiLineString(String line, int i) {
+            char quote = multiLineStringDelimiter.charAt(0);
+            while (i < line.length()) {
+                char c = line.charAt(i);
+                if (c == '\\' && quote == '"') {
+                    i += 2;
+                } else if (line.startsWith(multiLineStringDelimiter, i)) {
+                    // up to two quotes directly before the closing delimiter are part of the string
+                    i += 3;
+                    while (i < line.length() && line.charAt(i) == quote) {
+                        i++;
+                    }
+                    multiLineStringDelimiter = null;
+                    return i;
+                } else {
+                    i++;
+                }
+            }
+
+            return i;
+        }
+
+        private static int skipString(String line, int i, char quote) {
+            while (i < line.length()) {
+                char c = line.charAt(i);
+                if (c == '\\' && quote == '"') {
+                    i += 2;
+                } else if (c == quote) {
+                    return i + 1;
+                } else {
+                    i++;
+                }
+            }
+
+            return i;
+        }
+
+        private static String parseTableName(String header) {
+            int i = header.startsWith("[[") ? 2 : 1;
+            while (i < header.length() && Character.isWhitespace(header.charAt(i))) {
+                i++;
+            }
+
+            if (i < header.length() && (header.charAt(i) == '"' || header.charAt(i) == '\'')) {
+                char quote = header.charAt(i);
+                int end = header.indexOf(quote, i + 1);
+                return end > 0 ? header.substring(i + 1, end) : header.substring(i + 1);
+            }
+
+            int end = i;
+            while (end < header.length() && isBareKeyCharacter(header.charAt(end))) {
+                end++;
+            }
+
+            return header.substring(i, end);
+        }
+
+        private static boolean isBareKeyCharacter(char c) {
+            return c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_' || c == '-';
+        }
+
+    }
+
+    private static final class CreateToolsSubsetConfigFileCallable extends MasterToSlaveFileCallable<String> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String configFile;
+        private final List<String> tools;
+
+        private CreateToolsSubsetConfigFileCallable(String configFile, List<String> tools) {
+            this.configFile = configFile;
+            this.tools = new ArrayList<>(tools);
+        }
+
+        @Override
+        public String invoke(File workspace, VirtualChannel channel) throws IOException {
+            Path configFilePath = workspace.toPath().resolve(configFile);
+
+            List<String> lines;
+            try {
+                lines = Files.readAllLines(configFilePath, StandardCharsets.UTF_8);
+            } catch (NoSuchFileException e) {
+                // let the Project-Env CLI report the missing configuration file
+                return configFile;
+            }
+
+            byte[] reducedContent = String.join("\n", reduceToTools(lines, tools)).getBytes(StandardCharsets.UTF_8);
+
+            // the copy is placed next to the original, so that relative paths in it are resolved the same way, and it
+            // is only moved to its final name once it has been written completely
+            String fileName = configFilePath.getFileName().toString();
+            Path reducedConfigFilePath = configFilePath.resolveSibling("." + FilenameUtils.getBaseName(fileName) + "-"
+                    + Util.getDigestOf(UUID.randomUUID().toString()).substring(0, 8) + "." + FilenameUtils.getExtension(fileName));
+            Path temporaryFilePath = reducedConfigFilePath.resolveSibling(reducedConfigFilePath.getFileName() + ".tmp");
+            Files.write(temporaryFilePath, reducedContent);
+            Files.move(temporaryFilePath, reducedConfigFilePath, StandardCopyOption.ATOMIC_MOVE);
+
+            return workspace.toPath().relativize(reducedConfigFilePath).toString();
+        }
+
+    }
+
+    private static final class ResolveToolsDirectoryCallable extends MasterToSlaveFileCallable<String> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String configFile;
+
+        private ResolveToolsDirectoryCallable(String configFile) {
+            this.configFile = configFile;
+        }
+
+        @Override
+        public String invoke(File workspace, VirtualChannel channel) throws IOException {
+            Path workspacePath = workspace.toPath();
+
+            String toolsDirectory;
+            try {
+                toolsDirectory = readToolsDirectory(Files.readAllLines(workspacePath.resolve(configFile), StandardCharsets.UTF_8));
+            } catch (NoSuchFileException e) {
+                toolsDirectory = DEFAULT_TOOLS_DIRECTORY;
+            }
+
+            return workspacePath.resolve(toolsDirectory).normalize().toString();
+        }
+
+    }
+
+}
@@ -4,6 +4,7 @@ import hudson.EnvVars;
 import hudson.FilePath;
 import hudson.Launcher;
 import hudson.model.Computer;
+import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.slaves.WorkspaceList;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
@@ -24,6 +25,10 @@ public class StepContextHelper {
         return getOrThrow(stepContext, EnvVars.class);
     }
 
+    public static Run<?, ?> getRun(StepContext stepContext) throws Exception {
+        return getOrThrow(stepContext, Run.class);
+    }
+
     public static TaskListener getTaskListener(StepContext stepContext) throws Exception {
         return getOrThrow(stepContext, TaskListener.class);
     }
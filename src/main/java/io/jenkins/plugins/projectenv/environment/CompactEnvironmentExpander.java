@@ -0,0 +1,116 @@
+package io.jenkins.plugins.projectenv.environment;
+
+import hudson.EnvVars;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfoEnvironment;
+import org.jenkinsci.plugins.workflow.steps.EnvironmentExpander;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Applies the environment of a {@code withProjectEnv} block to the environment of every step within its body, like
+ * {@link EnvVars#overrideAll(java.util.Map)} would. It is serialized into the program state of the pipeline at every
+ * checkpoint, so it keeps the variables as plain arrays with interned keys instead of capturing an {@link EnvVars}
+ * together with the step execution. Variables which equal the environment the block has been started with are kept as
+ * well, since the environment might change until the body expands it (e.g. by assigning to {@code env}). The
+ * <code>PATH</code> resulting from the <code>PATH+</code> entries is cached, since it only depends on the
+ * <code>PATH</code> which gets expanded.
+ */
+public class CompactEnvironmentExpander extends EnvironmentExpander {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String PATH_VAR_NAME = "PATH";
+
+    private final String[] pathKeys;
+    private final String[] pathValues;
+    private final String[] keys;
+    private final String[] values;
+
+    private transient volatile ExpandedPath expandedPath;
+
+    private CompactEnvironmentExpander(String[] pathKeys, String[] pathValues, String[] keys, String[] values) {
+        this.pathKeys = pathKeys;
+        this.pathValues = pathValues;
+        this.keys = keys;
+        this.values = values;
+        internKeys();
+    }
+
+    public static CompactEnvironmentExpander create(EnvVars projectEnvVars) {
+        List<String> pathKeys = new ArrayList<>();
+        List<String> pathValues = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+
+        for (Map.Entry<String, String> entry : projectEnvVars.entrySet()) {
+            if (entry.getKey().startsWith(ToolInfoEnvironment.PATH_VAR_PREFIX)) {
+                pathKeys.add(entry.getKey());
+                pathValues.add(entry.getValue());
+            } else {
+                keys.add(entry.getKey());
+                values.add(entry.getValue());
+            }
+        }
+
+        return new CompactEnvironmentExpander(
+                pathKeys.toArray(new String[0]),
+                pathValues.toArray(new String[0]),
+                keys.toArray(new String[0]),
+                values.toArray(new String[0]));
+    }
+
+    @Override
+    public void expand(@Nonnull EnvVars envVars) {
+        for (int i = 0; i < keys.length; i++) {
+            envVars.override(keys[i], values[i]);
+        }
+
+        if (pathKeys.length == 0) {
+            return;
+        }
+
+        String originalPath = envVars.get(PATH_VAR_NAME);
+        ExpandedPath cachedExpandedPath = expandedPath;
+        if (cachedExpandedPath != null && Objects.equals(cachedExpandedPath.originalPath, originalPath)) {
+            envVars.put(PATH_VAR_NAME, cachedExpandedPath.path);
+            return;
+        }
+
+        for (int i = 0; i < pathKeys.length; i++) {
+            envVars.override(pathKeys[i], pathValues[i]);
+        }
+        expandedPath = new ExpandedPath(originalPath, envVars.get(PATH_VAR_NAME));
+    }
+
+    private Object readResolve() {
+        // keys are not interned by the deserialization
+        internKeys();
+        return this;
+    }
+
+    private void internKeys() {
+        for (int i = 0; i < pathKeys.length; i++) {
+            pathKeys[i] = pathKeys[i].intern();
+        }
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keys[i].intern();
+        }
+    }
+
+    private static final class ExpandedPath {
+
+        private final String originalPath;
+        private final String path;
+
+        private ExpandedPath(String originalPath, String path) {
+            this.originalPath = originalPath;
+            this.path = path;
+        }
+
+    }
+
+}
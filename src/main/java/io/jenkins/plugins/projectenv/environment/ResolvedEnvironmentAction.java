@@ -0,0 +1,156 @@
+package io.jenkins.plugins.projectenv.environment;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.InvisibleAction;
+import hudson.model.Run;
+import hudson.remoting.VirtualChannel;
+import io.jenkins.plugins.projectenv.toolinfo.ToolInfoEnvironment;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Environments resolved by the {@code withProjectEnv} blocks of a run. Later blocks reuse them without probing the
+ * agent or running the Project-Env CLI again, as long as they run on the same agent and workspace with the same
+ * configuration and CLI version, and all paths the environment exported (e.g. {@code PATH+} entries or
+ * {@code JAVA_HOME}) still exist.
+ */
+public class ResolvedEnvironmentAction extends InvisibleAction {
+
+    private final Map<String, ResolvedEnvironment> environments = new HashMap<>();
+
+    public static String createKey(String agent, FilePath workspace, String configFile, String configFileDigest, String cliVersion) {
+        return Util.getDigestOf(String.join("\n",
+                agent,
+                workspace.getRemote(),
+                configFile,
+                configFileDigest,
+                cliVersion));
+    }
+
+    /**
+     * @return the environment resolved for the given key or <code>null</code>, if there is none or if any of the
+     * exported paths has been removed in the meantime
+     */
+    public static EnvVars get(Run<?, ?> run, FilePath workspace, String key) throws IOException, InterruptedException {
+        ResolvedEnvironmentAction action = run.getAction(ResolvedEnvironmentAction.class);
+        ResolvedEnvironment environment = action != null ? action.getEnvironment(key) : null;
+        if (environment == null) {
+            return null;
+        }
+
+        if (!workspace.act(new PathsExistCallable(environment.paths))) {
+            action.removeEnvironment(key);
+            run.save();
+            return null;
+        }
+
+        return new EnvVars(environment.variables);
+    }
+
+    /**
+     * Stores the given environment together with the paths it exports, which are the {@code PATH+} entries and the
+     * values of all other variables which are absolute paths existing on the agent.
+     */
+    public static void put(Run<?, ?> run, FilePath workspace, String key, EnvVars environment) throws IOException, InterruptedException {
+        List<String> paths = workspace.act(new ExportedPathsCallable(new HashMap<>(environment)));
+
+        ResolvedEnvironmentAction action;
+        synchronized (run) {
+            action = run.getAction(ResolvedEnvironmentAction.class);
+            if (action == null) {
+                action = new ResolvedEnvironmentAction();
+                run.addAction(action);
+            }
+        }
+        action.putEnvironment(key, new ResolvedEnvironment(new HashMap<>(environment), paths));
+
+        // the action is persisted with the run, so that the environment is still known after a controller restart
+        run.save();
+    }
+
+    private synchronized ResolvedEnvironment getEnvironment(String key) {
+        return environments.get(key);
+    }
+
+    private synchronized void putEnvironment(String key, ResolvedEnvironment environment) {
+        environments.put(key, environment);
+    }
+
+    private synchronized void removeEnvironment(String key) {
+        environments.remove(key);
+    }
+
+    private static final class ResolvedEnvironment {
+
+        private final Map<String, String> variables;
+        private final List<String> paths;
+
+        private ResolvedEnvironment(Map<String, String> variables, List<String> paths) {
+            this.variables = variables;
+            this.paths = paths;
+        }
+
+    }
+
+    private static final class ExportedPathsCallable extends MasterToSlaveFileCallable<List<String>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Map<String, String> environment;
+
+        private ExportedPathsCallable(Map<String, String> environment) {
+            this.environment = environment;
+        }
+
+        @Override
+        public List<String> invoke(File workspace, VirtualChannel channel) {
+            List<String> paths = new ArrayList<>();
+            environment.forEach((name, value) -> {
+                if (name.startsWith(ToolInfoEnvironment.PATH_VAR_PREFIX) || isExistingAbsolutePath(value)) {
+                    paths.add(value);
+                }
+            });
+
+            return paths;
+        }
+
+        private static boolean isExistingAbsolutePath(String value) {
+            File file = new File(value);
+            return file.isAbsolute() && file.exists();
+        }
+
+    }
+
+    static final class PathsExistCallable extends MasterToSlaveFileCallable<Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> paths;
+
+        PathsExistCallable(List<String> paths) {
+            this.paths = paths;
+        }
+
+        @Override
+        public Boolean invoke(File workspace, VirtualChannel channel) {
+            for (String path : paths) {
+                // relative paths (e.g. PATH+ entries of tools installed into the workspace) are relative to the workspace
+                if (!workspace.toPath().resolve(path).toFile().exists()) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+    }
+
+}
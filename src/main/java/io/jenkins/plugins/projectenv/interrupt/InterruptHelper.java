@@ -0,0 +1,32 @@
+package io.jenkins.plugins.projectenv.interrupt;
+
+public final class InterruptHelper {
+
+    private InterruptHelper() {
+        // noop
+    }
+
+    /**
+     * Executes the given cleanup even if the current thread has been interrupted (e.g. since the build has been
+     * aborted), which would otherwise let every remoting call of the cleanup fail immediately. The interrupt status is
+     * restored afterwards.
+     */
+    public static void runUninterruptibly(CleanupAction action) throws Exception {
+        boolean interrupted = Thread.interrupted();
+        try {
+            action.run();
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface CleanupAction {
+
+        void run() throws Exception;
+
+    }
+
+}
@@ -0,0 +1,157 @@
+package io.jenkins.plugins.projectenv.lock;
+
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.remoting.VirtualChannel;
+import io.jenkins.plugins.projectenv.interrupt.InterruptHelper;
+import jenkins.MasterToSlaveFileCallable;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Exclusive lock on a path of an agent. The lock is held by the agent JVM, so it spans multiple remoting calls and
+ * is shared between all builds running on the same agent. The lock is leased for a short time only and the lease is
+ * renewed by the controller as long as the lock is held, so that a lock whose release got lost (e.g. since the
+ * controller crashed or the channel closed) is available again soon, while a long running install keeps its lock.
+ */
+public final class AgentLock implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger(AgentLock.class.getName());
+
+    private static final long LEASE_MILLIS = SystemProperties.getLong(AgentLock.class.getName() + ".leaseMillis", TimeUnit.MINUTES.toMillis(2));
+
+    private final FilePath target;
+    private final String token;
+    private final long waitMillis;
+    private final ScheduledFuture<?> renewal;
+    private final AtomicBoolean renewing = new AtomicBoolean();
+
+    private AgentLock(FilePath target, String token, long waitMillis) {
+        this.target = target;
+        this.token = token;
+        this.waitMillis = waitMillis;
+
+        long renewalIntervalMillis = LEASE_MILLIS / 3;
+        this.renewal = Timer.get().scheduleWithFixedDelay(this::scheduleRenewal, renewalIntervalMillis, renewalIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public static AgentLock acquire(FilePath target) throws Exception {
+        String token = UUID.randomUUID().toString();
+        long waitMillis = target.act(new AcquireCallable(token, LEASE_MILLIS));
+
+        return new AgentLock(target, token, waitMillis);
+    }
+
+    /**
+     * @return how long the agent had to wait for the lock to be released by other owners
+     */
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+
+    @Override
+    public void close() throws Exception {
+        renewal.cancel(false);
+
+        // an aborted build has to release the lock at once, instead of blocking other builds until the lease expired
+        InterruptHelper.runUninterruptibly(() -> target.act(new ReleaseCallable(token)));
+    }
+
+    private void scheduleRenewal() {
+        // the remoting call must not block the shared timer, a renewal which is still running on a slow channel is not
+        // scheduled a second time
+        if (renewing.compareAndSet(false, true)) {
+            Computer.threadPoolForRemoting.submit(() -> {
+                try {
+                    renew();
+                } finally {
+                    renewing.set(false);
+                }
+            });
+        }
+    }
+
+    private void renew() {
+        try {
+            if (!target.act(new RenewCallable(token, LEASE_MILLIS))) {
+                LOGGER.log(Level.WARNING, "lease of lock on {0} expired before it could be renewed", target);
+                renewal.cancel(false);
+            }
+        } catch (Exception e) {
+            // e.g. the channel closed, the lease expires on the agent then
+            LOGGER.log(Level.FINE, "failed to renew lease of lock on " + target, e);
+        }
+    }
+
+    private static String toKey(File file) {
+        return file.toPath().toAbsolutePath().normalize().toString();
+    }
+
+    private static final class AcquireCallable extends MasterToSlaveFileCallable<Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String token;
+        private final long leaseMillis;
+
+        private AcquireCallable(String token, long leaseMillis) {
+            this.token = token;
+            this.leaseMillis = leaseMillis;
+        }
+
+        @Override
+        public Long invoke(File file, VirtualChannel channel) throws InterruptedException {
+            long start = System.nanoTime();
+            AgentLockRegistry.acquire(toKey(file), token, leaseMillis);
+
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+
+    }
+
+    private static final class RenewCallable extends MasterToSlaveFileCallable<Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String token;
+        private final long leaseMillis;
+
+        private RenewCallable(String token, long leaseMillis) {
+            this.token = token;
+            this.leaseMillis = leaseMillis;
+        }
+
+        @Override
+        public Boolean invoke(File file, VirtualChannel channel) {
+            return AgentLockRegistry.renew(toKey(file), token, leaseMillis);
+        }
+
+    }
+
+    private static final class ReleaseCallable extends MasterToSlaveFileCallable<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String token;
+
+        private ReleaseCallable(String token) {
+            this.token = token;
+        }
+
+        @Override
+        public Void invoke(File file, VirtualChannel channel) {
+            AgentLockRegistry.release(toKey(file), token);
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,65 @@
+package io.jenkins.plugins.projectenv.lock;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Agent-side registry of leased locks, keyed by a normalized path. A lease expires automatically unless its owner
+ * renews it, so that a lock whose owner vanished (e.g. controller restart) does not block the agent for long.
+ */
+final class AgentLockRegistry {
+
+    private static final Map<String, Lease> LEASES = new HashMap<>();
+
+    private AgentLockRegistry() {
+        // noop
+    }
+
+    static synchronized void acquire(String key, String token, long leaseMillis) throws InterruptedException {
+        while (true) {
+            long now = System.currentTimeMillis();
+
+            Lease lease = LEASES.get(key);
+            if (lease == null || lease.expiresAt <= now) {
+                LEASES.put(key, new Lease(token, now + leaseMillis));
+                return;
+            }
+
+            AgentLockRegistry.class.wait(lease.expiresAt - now);
+        }
+    }
+
+    /**
+     * @return whether the lease is still held by the given token, in which case it has been extended
+     */
+    static synchronized boolean renew(String key, String token, long leaseMillis) {
+        Lease lease = LEASES.get(key);
+        if (lease == null || !lease.token.equals(token)) {
+            return false;
+        }
+
+        LEASES.put(key, new Lease(token, System.currentTimeMillis() + leaseMillis));
+        return true;
+    }
+
+    static synchronized void release(String key, String token) {
+        Lease lease = LEASES.get(key);
+        if (lease != null && lease.token.equals(token)) {
+            LEASES.remove(key);
+            AgentLockRegistry.class.notifyAll();
+        }
+    }
+
+    private static final class Lease {
+
+        private final String token;
+        private final long expiresAt;
+
+        private Lease(String token, long expiresAt) {
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+
+    }
+
+}
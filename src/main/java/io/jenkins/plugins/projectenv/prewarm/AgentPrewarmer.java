@@ -0,0 +1,132 @@
+package io.jenkins.plugins.projectenv.prewarm;
+
+import hudson.EnvVars;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.slaves.ComputerListener;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.agent.AgentInfoCache;
+import io.jenkins.plugins.projectenv.cli.CliProvisioner;
+import io.jenkins.plugins.projectenv.cli.LatestCliVersionResolver;
+import io.jenkins.plugins.projectenv.config.ProjectEnvConfiguration;
+import io.jenkins.plugins.projectenv.throttle.ConcurrencyLimiter;
+import io.jenkins.plugins.projectenv.timing.StepPhase;
+import io.jenkins.plugins.projectenv.timing.StepTiming;
+
+import java.io.PrintStream;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Installs the Project-Env CLI into the {@link io.jenkins.plugins.projectenv.cli.CliCache} of agents as soon as they
+ * come online, so that the first build on a fresh agent does not have to wait for the CLI download. The number of
+ * agents pre-warmed at once is limited per controller. Tools are not pre-warmed, since steps install them into the
+ * tools directory of their workspace.
+ */
+public final class AgentPrewarmer {
+
+    private static final Logger LOGGER = Logger.getLogger(AgentPrewarmer.class.getName());
+
+    private static final String LOG_PREFIX = "[Project-Env] ";
+
+    private static final String CACHES_DIRECTORY_NAME = "caches";
+    private static final String PREWARM_DIRECTORY_NAME = "project-env-prewarm";
+
+    private static final ConcurrencyLimiter LIMITER = new ConcurrencyLimiter(() -> ProjectEnvConfiguration.get().getMaxConcurrentPrewarms());
+
+    private AgentPrewarmer() {
+        // noop
+    }
+
+    static void prewarm(Computer computer, TaskListener listener) throws Exception {
+        PrintStream logger = listener.getLogger();
+
+        long queueStart = System.nanoTime();
+        try (ConcurrencyLimiter.Permit permit = LIMITER.acquire()) {
+            long waitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queueStart);
+            if (waitMillis > 0) {
+                logger.println(LOG_PREFIX + "waited " + waitMillis + " ms for other agents to finish pre-warming");
+            }
+
+            Node node = computer.getNode();
+            FilePath rootPath = node != null ? node.getRootPath() : null;
+            if (rootPath == null) {
+                logger.println(LOG_PREFIX + "skipping pre-warming, since the agent went offline");
+                return;
+            }
+
+            ProjectEnvConfiguration configuration = ProjectEnvConfiguration.get();
+            StepTiming timing = new StepTiming(computer.getName());
+            FilePath prewarmDirectory = rootPath.child(CACHES_DIRECTORY_NAME).child(PREWARM_DIRECTORY_NAME);
+
+            EnvVars envVars = computer.buildEnvironment(listener);
+            AgentInfo agentInfo = timing.time(StepPhase.AGENT_PROBE,
+                    () -> AgentInfoCache.get(computer, envVars.get("PATH"), CliProvisioner.CLI_EXECUTABLE_FILE_NAME));
+
+            String executable = agentInfo.getCliExecutable().orElse(null);
+            if (executable == null) {
+                String cliVersion = timing.time(StepPhase.VERSION_RESOLUTION, () -> getCliVersion(configuration));
+                FilePath cliDirectory = provisionCli(computer, agentInfo, listener, timing, configuration, cliVersion, prewarmDirectory);
+
+                logger.println(LOG_PREFIX + "pre-warmed Project-Env CLI " + cliVersion + " at " + cliDirectory.getRemote());
+            } else {
+                logger.println(LOG_PREFIX + "using Project-Env CLI from PATH at " + executable);
+            }
+
+            logger.println(LOG_PREFIX + "finished pre-warming, timings: " + timing.toCompactString());
+        }
+    }
+
+    private static String getCliVersion(ProjectEnvConfiguration configuration) throws InterruptedException {
+        String cliVersion = configuration.getPrewarmCliVersion();
+        if (cliVersion != null) {
+            return cliVersion;
+        }
+
+        return LatestCliVersionResolver.get().resolve();
+    }
+
+    private static FilePath provisionCli(Computer computer, AgentInfo agentInfo, TaskListener listener, StepTiming timing,
+                                         ProjectEnvConfiguration configuration, String cliVersion, FilePath prewarmDirectory) throws Exception {
+        FilePath temporaryDirectory = prewarmDirectory.child("tmp-" + UUID.randomUUID());
+        try {
+            return new CliProvisioner(computer, agentInfo, listener, timing, configuration.getEffectiveCliMirrors())
+                    .provision(cliVersion, temporaryDirectory);
+        } finally {
+            if (temporaryDirectory.exists()) {
+                temporaryDirectory.deleteRecursive();
+            }
+        }
+    }
+
+    @Extension
+    public static class PrewarmListener extends ComputerListener {
+
+        @Override
+        public void onOnline(Computer computer, TaskListener listener) {
+            Node node = computer.getNode();
+            if (node == null || !ProjectEnvConfiguration.get().isPrewarmEnabledFor(node)) {
+                return;
+            }
+
+            listener.getLogger().println(LOG_PREFIX + "scheduling pre-warming of Project-Env CLI");
+            Computer.threadPoolForRemoting.submit(() -> {
+                try {
+                    prewarm(computer, listener);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    listener.getLogger().println(LOG_PREFIX + "failed to pre-warm agent: " + e.getMessage());
+                    LOGGER.log(Level.WARNING, "failed to pre-warm agent " + computer.getName(), e);
+                }
+            });
+        }
+
+    }
+
+}
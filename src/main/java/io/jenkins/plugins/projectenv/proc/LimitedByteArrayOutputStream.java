@@ -0,0 +1,51 @@
+package io.jenkins.plugins.projectenv.proc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+/**
+ * Collects at most the given number of bytes and silently discards the rest, so that a misbehaving process cannot
+ * exhaust the memory of the controller.
+ */
+public final class LimitedByteArrayOutputStream extends ByteArrayOutputStream {
+
+    private final long limit;
+    private boolean limitExceeded;
+
+    public LimitedByteArrayOutputStream(long limit) {
+        this.limit = limit;
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (count >= limit) {
+            limitExceeded = true;
+            return;
+        }
+
+        super.write(b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) {
+        int acceptedLength = (int) Math.min(len, limit - count);
+        if (acceptedLength < len) {
+            limitExceeded = true;
+        }
+
+        super.write(b, off, acceptedLength);
+    }
+
+    public synchronized boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+
+    /**
+     * @return a stream reading the collected bytes without copying them
+     */
+    public synchronized InputStream toInputStream() {
+        return new ByteArrayInputStream(buf, 0, count);
+    }
+
+}
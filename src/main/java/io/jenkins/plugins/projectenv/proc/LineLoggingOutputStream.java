@@ -0,0 +1,28 @@
+package io.jenkins.plugins.projectenv.proc;
+
+import hudson.console.LineTransformationOutputStream;
+
+import java.io.PrintStream;
+
+/**
+ * Splits the written bytes into lines and writes each complete line to the given logger, without an additional
+ * thread or pipe in between.
+ */
+final class LineLoggingOutputStream extends LineTransformationOutputStream {
+
+    private final PrintStream logger;
+
+    LineLoggingOutputStream(PrintStream logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    protected void eol(byte[] bytes, int length) {
+        logger.write(bytes, 0, length);
+        if (length > 0 && bytes[length - 1] != '\n') {
+            // the last line of the stream might not be terminated
+            logger.println();
+        }
+    }
+
+}
@@ -1,13 +1,16 @@
 package io.jenkins.plugins.projectenv.proc;
 
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
 import hudson.Launcher.ProcStarter;
 import hudson.Proc;
+import hudson.model.TaskListener;
 import io.jenkins.plugins.projectenv.context.StepContextHelper;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
 
-import java.io.*;
-import java.nio.charset.StandardCharsets;
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.OutputStream;
 
 public final class ProcHelper {
 
@@ -15,59 +18,44 @@ public final class ProcHelper {
         // noop
     }
 
-    public static String executeAndGetStdOut(StepContext context, String... commands) throws Exception {
-        ProcResult procResult = execute(context, commands);
-        if (procResult.getExitCode() == 0) {
-            return procResult.getStdOutput();
-        } else {
-            return null;
-        }
+    /**
+     * Executes the given commands and streams the standard output to the given output stream, so that it can be
+     * consumed incrementally. The standard error is written line by line to the build log.
+     *
+     * @return the exit code of the process
+     */
+    public static int execute(StepContext context, OutputStream stdOutOutputStream, String... commands) throws Exception {
+        return execute(
+                StepContextHelper.getLauncher(context),
+                StepContextHelper.getEnvVars(context),
+                StepContextHelper.getWorkspace(context),
+                StepContextHelper.getTaskListener(context),
+                stdOutOutputStream,
+                commands);
     }
 
-    public static ProcResult execute(StepContext context, String... commands) throws Exception {
-        try (ByteArrayOutputStream stdOutInputStream = new ByteArrayOutputStream()) {
-
-            ProcStarter procStarter = StepContextHelper.getLauncher(context)
-                    .launch()
-                    .cmds(commands)
-                    .envs(StepContextHelper.getEnvVars(context))
-                    .pwd(StepContextHelper.getWorkspace(context));
-
-            Thread stdErrThread;
-            int exitCode;
-            try (PipedInputStream stdErrInputStream = new PipedInputStream();
-                 BufferedOutputStream stdErrOutputStream = new BufferedOutputStream(new PipedOutputStream(stdErrInputStream))) {
-
-                Proc process = procStarter
-                        .stdout(stdOutInputStream)
-                        .stderr(stdErrOutputStream)
-                        .start();
-
-                stdErrThread = attachStdErrLoggingThread(stdErrInputStream, context);
-                exitCode = process.join();
+    public static int execute(Launcher launcher, EnvVars envVars, FilePath workingDirectory, TaskListener listener,
+                              OutputStream stdOutOutputStream, String... commands) throws IOException, InterruptedException {
+        ProcStarter procStarter = launcher
+                .launch()
+                .cmds(commands)
+                .envs(envVars)
+                .pwd(workingDirectory);
+
+        try (OutputStream stdErrOutputStream = new LineLoggingOutputStream(listener.getLogger())) {
+            Proc process = procStarter
+                    .stdout(stdOutOutputStream)
+                    .stderr(stdErrOutputStream)
+                    .start();
+
+            try {
+                return process.join();
+            } catch (InterruptedException e) {
+                // e.g. the build has been aborted, so the process tree must not keep on downloading and installing tools
+                process.kill();
+                throw e;
             }
-            stdErrThread.join();
-
-            return ImmutableProcResult.builder()
-                    .exitCode(exitCode)
-                    .stdOutput(stdOutInputStream.toString(StandardCharsets.UTF_8.name()))
-                    .build();
         }
     }
 
-    private static Thread attachStdErrLoggingThread(InputStream stdErrInputStream, StepContext context) throws Exception {
-        PrintStream logger = StepContextHelper.getTaskListener(context).getLogger();
-
-        Thread thread = new Thread(() -> {
-            try (Scanner scanner = new Scanner(stdErrInputStream, StandardCharsets.UTF_8.name())) {
-                while (scanner.hasNextLine()) {
-                    logger.println(scanner.nextLine());
-                }
-            }
-        });
-        thread.start();
-
-        return thread;
-    }
-
 }
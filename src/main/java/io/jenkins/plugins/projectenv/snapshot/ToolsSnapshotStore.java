@@ -0,0 +1,260 @@
+package io.jenkins.plugins.projectenv.snapshot;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.util.DirScanner;
+import hudson.util.io.ArchiverFactory;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import jenkins.util.SystemProperties;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Store of tools directory snapshots on the controller, keyed by the job, the content of the configuration file, the
+ * path of the tools directory (since installed tools might refer to it) and the platform of the agent. Every top-level
+ * entry of a tools directory is archived separately, so that the archives can be streamed to the agent and
+ * decompressed there in parallel. The SHA-256 digest of every archive is stored next to it and verified before a
+ * snapshot is restored. The least recently used snapshots are evicted once the store exceeds its size limit.
+ */
+public final class ToolsSnapshotStore {
+
+    private static final Logger LOGGER = Logger.getLogger(ToolsSnapshotStore.class.getName());
+
+    private static final int RESTORE_THREADS = SystemProperties.getInteger(ToolsSnapshotStore.class.getName() + ".restoreThreads", 4);
+
+    private static final String ARCHIVE_EXTENSION = ".tar.gz";
+    private static final String DIGEST_EXTENSION = ".sha256";
+    private static final String LAST_USED_FILE_NAME = ".last-used";
+    private static final String STAGING_DIRECTORY_INFIX = ".tmp-";
+
+    // staging directories of snapshots which have been interrupted (e.g. by a controller restart) are removed after this
+    private static final long STALE_STAGING_DIRECTORY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private ToolsSnapshotStore() {
+        // noop
+    }
+
+    public static String createKey(String jobFullName, String configFileDigest, String toolsDirectory, AgentInfo agentInfo) {
+        return Util.getDigestOf(String.join("\n",
+                jobFullName,
+                configFileDigest,
+                toolsDirectory,
+                agentInfo.getOperatingSystem().name(),
+                agentInfo.getCpuArchitecture().name()));
+    }
+
+    /**
+     * Restores the snapshot with the given key into the given tools directory.
+     *
+     * @return whether there was a snapshot to restore
+     */
+    public static boolean restore(File storeDirectory, String key, FilePath toolsDirectory) throws IOException, InterruptedException {
+        File snapshotDirectory = new File(storeDirectory, key);
+        File[] archives = snapshotDirectory.listFiles((directory, name) -> name.endsWith(ARCHIVE_EXTENSION));
+        if (archives == null || archives.length == 0) {
+            return false;
+        }
+
+        for (File archive : archives) {
+            if (!isIntact(archive)) {
+                // the snapshot is removed, so that the next build stores an intact one
+                delete(snapshotDirectory);
+                throw new IOException("tools snapshot archive " + archive + " does not match its digest");
+            }
+        }
+
+        FileUtils.touch(new File(snapshotDirectory, LAST_USED_FILE_NAME));
+        toolsDirectory.mkdirs();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(RESTORE_THREADS, archives.length), runnable -> {
+            Thread thread = new Thread(runnable, "Project-Env restore of tools snapshot " + key);
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Void>> restores = new ArrayList<>();
+            for (File archive : archives) {
+                restores.add(executor.submit(() -> {
+                    // the archive is decompressed on the agent, while it is streamed from the controller
+                    try (InputStream inputStream = Files.newInputStream(archive.toPath())) {
+                        toolsDirectory.untarFrom(inputStream, FilePath.TarCompression.GZIP);
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<Void> restore : restores) {
+                restore.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof InterruptedException) {
+                throw (InterruptedException) e.getCause();
+            }
+            throw new IOException("failed to restore tools snapshot " + key, e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return true;
+    }
+
+    /**
+     * Archives the given tools directory as snapshot with the given key, unless there is already such a snapshot, and
+     * evicts the least recently used snapshots afterwards if the store exceeds the given size.
+     *
+     * @return whether a snapshot has been created
+     */
+    public static boolean save(File storeDirectory, String key, FilePath toolsDirectory, long maxSizeBytes) throws IOException, InterruptedException {
+        File snapshotDirectory = new File(storeDirectory, key);
+        if (snapshotDirectory.isDirectory()) {
+            return false;
+        }
+
+        List<FilePath> entries = toolsDirectory.list();
+        if (entries.isEmpty()) {
+            return false;
+        }
+
+        File stagingDirectory = new File(storeDirectory, key + STAGING_DIRECTORY_INFIX + UUID.randomUUID());
+        Files.createDirectories(stagingDirectory.toPath());
+        try {
+            for (int i = 0; i < entries.size(); i++) {
+                FilePath entry = entries.get(i);
+                MessageDigest digest = createSha256Digest();
+
+                // the archive is compressed on the agent, so only the compressed bytes are sent to the controller
+                File archive = new File(stagingDirectory, i + ARCHIVE_EXTENSION);
+                try (OutputStream outputStream = new DigestOutputStream(Files.newOutputStream(archive.toPath()), digest)) {
+                    // the full scanner names the entries after the scanned directory (or file) itself
+                    entry.archive(ArchiverFactory.TARGZ, outputStream, new DirScanner.Full());
+                }
+                Files.writeString(getDigestFile(archive).toPath(), Util.toHexString(digest.digest()), StandardCharsets.UTF_8);
+            }
+            FileUtils.touch(new File(stagingDirectory, LAST_USED_FILE_NAME));
+
+            try {
+                Files.move(stagingDirectory.toPath(), snapshotDirectory.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                if (snapshotDirectory.isDirectory()) {
+                    // another build stored the same snapshot in the meantime
+                    return false;
+                }
+                throw e;
+            }
+        } finally {
+            if (stagingDirectory.exists()) {
+                Util.deleteRecursive(stagingDirectory);
+            }
+        }
+
+        evict(storeDirectory, maxSizeBytes);
+        return true;
+    }
+
+    static synchronized void evict(File storeDirectory, long maxSizeBytes) {
+        File[] directories = storeDirectory.listFiles(File::isDirectory);
+        if (directories == null) {
+            return;
+        }
+
+        List<File> snapshotDirectories = new ArrayList<>();
+        for (File directory : directories) {
+            if (!directory.getName().contains(STAGING_DIRECTORY_INFIX)) {
+                snapshotDirectories.add(directory);
+            } else if (System.currentTimeMillis() - directory.lastModified() > STALE_STAGING_DIRECTORY_MILLIS) {
+                delete(directory);
+            }
+        }
+
+        long totalSizeBytes = 0;
+        for (File snapshotDirectory : snapshotDirectories) {
+            totalSizeBytes += FileUtils.sizeOfDirectory(snapshotDirectory);
+        }
+
+        snapshotDirectories.sort(Comparator.comparingLong(ToolsSnapshotStore::getLastUsedMillis));
+        for (File snapshotDirectory : snapshotDirectories) {
+            if (totalSizeBytes <= maxSizeBytes) {
+                break;
+            }
+
+            long sizeBytes = FileUtils.sizeOfDirectory(snapshotDirectory);
+            if (delete(snapshotDirectory)) {
+                totalSizeBytes -= sizeBytes;
+                LOGGER.log(Level.FINE, "evicted tools snapshot {0} of {1} bytes", new Object[]{snapshotDirectory.getName(), sizeBytes});
+            }
+        }
+    }
+
+    private static boolean isIntact(File archive) throws IOException {
+        File digestFile = getDigestFile(archive);
+        if (!digestFile.isFile()) {
+            return false;
+        }
+
+        MessageDigest digest = createSha256Digest();
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(archive.toPath()), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+
+        return Files.readString(digestFile.toPath(), StandardCharsets.UTF_8).trim().equals(Util.toHexString(digest.digest()));
+    }
+
+    private static File getDigestFile(File archive) {
+        return new File(archive.getPath() + DIGEST_EXTENSION);
+    }
+
+    private static MessageDigest createSha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    static List<String> getKeys(File storeDirectory) {
+        String[] names = storeDirectory.list((directory, name) -> !name.contains(STAGING_DIRECTORY_INFIX));
+        return names != null ? Arrays.asList(names) : new ArrayList<>();
+    }
+
+    private static long getLastUsedMillis(File snapshotDirectory) {
+        return new File(snapshotDirectory, LAST_USED_FILE_NAME).lastModified();
+    }
+
+    private static boolean delete(File directory) {
+        try {
+            Util.deleteRecursive(directory);
+            return true;
+        } catch (IOException e) {
+            // a snapshot which is restored at the moment might not be deletable on some platforms
+            LOGGER.log(Level.WARNING, "failed to delete " + directory, e);
+            return false;
+        }
+    }
+
+}
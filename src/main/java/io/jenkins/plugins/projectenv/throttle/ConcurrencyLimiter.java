@@ -0,0 +1,70 @@
+package io.jenkins.plugins.projectenv.throttle;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.IntSupplier;
+
+/**
+ * Fair (first come, first served) limiter for the number of concurrently running operations. The limit is read on
+ * every acquisition, so that changes to the global configuration take effect immediately. A limit of 0 or less means
+ * unlimited.
+ */
+public class ConcurrencyLimiter {
+
+    private final IntSupplier limit;
+    private final Deque<Object> queue = new ArrayDeque<>();
+    private int active;
+
+    public ConcurrencyLimiter(IntSupplier limit) {
+        this.limit = limit;
+    }
+
+    public Permit acquire() throws InterruptedException {
+        Object ticket = new Object();
+        synchronized (this) {
+            queue.addLast(ticket);
+            try {
+                while (queue.peekFirst() != ticket || isLimitReached()) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                queue.remove(ticket);
+                notifyAll();
+                throw e;
+            }
+
+            queue.removeFirst();
+            active++;
+            // the next one in the queue might be allowed to proceed as well
+            notifyAll();
+        }
+
+        return this::release;
+    }
+
+    public synchronized int getActiveCount() {
+        return active;
+    }
+
+    public synchronized int getQueueLength() {
+        return queue.size();
+    }
+
+    private boolean isLimitReached() {
+        int currentLimit = limit.getAsInt();
+        return currentLimit > 0 && active >= currentLimit;
+    }
+
+    private synchronized void release() {
+        active--;
+        notifyAll();
+    }
+
+    public interface Permit extends AutoCloseable {
+
+        @Override
+        void close();
+
+    }
+
+}
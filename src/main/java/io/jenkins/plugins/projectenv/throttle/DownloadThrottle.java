@@ -0,0 +1,120 @@
+package io.jenkins.plugins.projectenv.throttle;
+
+import hudson.model.Computer;
+import io.jenkins.plugins.projectenv.config.ProjectEnvConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+/**
+ * Limits the number of concurrent downloads per controller, per agent and per mirror, so that hundreds of builds
+ * starting at the same moment do not saturate the uplink of the controller, the agents and the mirrors. Tool installs
+ * of the Project-Env CLI count as downloads of the controller and the agent, since the tools are downloaded from their
+ * vendors instead of a mirror. Permits are handed out first come, first served.
+ */
+public final class DownloadThrottle {
+
+    private static final DownloadThrottle INSTANCE = new DownloadThrottle(
+            () -> ProjectEnvConfiguration.get().getMaxConcurrentDownloads(),
+            () -> ProjectEnvConfiguration.get().getMaxConcurrentDownloadsPerAgent(),
+            () -> ProjectEnvConfiguration.get().getMaxConcurrentDownloadsPerMirror());
+
+    private final ConcurrencyLimiter controllerLimiter;
+    private final IntSupplier agentLimit;
+    private final IntSupplier mirrorLimit;
+
+    // the limiters of removed agents are dropped together with their computer
+    private final Map<Computer, ConcurrencyLimiter> agentLimiters = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Map<String, ConcurrencyLimiter> mirrorLimiters = new ConcurrentHashMap<>();
+
+    DownloadThrottle(IntSupplier controllerLimit, IntSupplier agentLimit, IntSupplier mirrorLimit) {
+        this.controllerLimiter = new ConcurrencyLimiter(controllerLimit);
+        this.agentLimit = agentLimit;
+        this.mirrorLimit = mirrorLimit;
+    }
+
+    public static DownloadThrottle get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Waits until the given agent may download from the mirror with the given URL template.
+     */
+    public Permit acquireDownload(Computer computer, String mirrorUrlTemplate) throws InterruptedException {
+        return acquire(getAgentLimiter(computer), mirrorLimiters.computeIfAbsent(mirrorUrlTemplate, key -> new ConcurrencyLimiter(mirrorLimit)));
+    }
+
+    /**
+     * Waits until the given agent may download from a source which is not one of the configured mirrors.
+     */
+    public Permit acquireDownload(Computer computer) throws InterruptedException {
+        return acquire(getAgentLimiter(computer));
+    }
+
+    /**
+     * Waits until the given agent may install tools.
+     */
+    public Permit acquireToolInstall(Computer computer) throws InterruptedException {
+        return acquire(getAgentLimiter(computer));
+    }
+
+    private ConcurrencyLimiter getAgentLimiter(Computer computer) {
+        return agentLimiters.computeIfAbsent(computer, key -> new ConcurrencyLimiter(agentLimit));
+    }
+
+    private Permit acquire(ConcurrencyLimiter... limiters) throws InterruptedException {
+        long start = System.nanoTime();
+
+        // the controller-wide limiter is always acquired last, so that no permit of it is held while waiting for a
+        // more specific one and the limiters are acquired in the same order by everyone
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        try {
+            for (ConcurrencyLimiter limiter : limiters) {
+                permits.add(limiter.acquire());
+            }
+            permits.add(controllerLimiter.acquire());
+        } catch (InterruptedException e) {
+            release(permits);
+            throw e;
+        }
+
+        return new Permit(permits, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private static void release(List<ConcurrencyLimiter.Permit> permits) {
+        for (int i = permits.size() - 1; i >= 0; i--) {
+            permits.get(i).close();
+        }
+    }
+
+    public static final class Permit implements ConcurrencyLimiter.Permit {
+
+        private final List<ConcurrencyLimiter.Permit> permits;
+        private final long waitMillis;
+
+        private Permit(List<ConcurrencyLimiter.Permit> permits, long waitMillis) {
+            this.permits = permits;
+            this.waitMillis = waitMillis;
+        }
+
+        /**
+         * @return how long the permit was queued for other downloads to finish
+         */
+        public long getWaitMillis() {
+            return waitMillis;
+        }
+
+        @Override
+        public void close() {
+            release(permits);
+        }
+
+    }
+
+}
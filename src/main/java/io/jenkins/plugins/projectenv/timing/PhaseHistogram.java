@@ -0,0 +1,86 @@
+package io.jenkins.plugins.projectenv.timing;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Histogram of the durations of a phase, with fixed exponential buckets.
+ */
+@ExportedBean
+public class PhaseHistogram {
+
+    private static final long[] BUCKET_UPPER_BOUNDS_MILLIS = {
+            100,
+            TimeUnit.SECONDS.toMillis(1),
+            TimeUnit.SECONDS.toMillis(10),
+            TimeUnit.MINUTES.toMillis(1),
+            TimeUnit.MINUTES.toMillis(10),
+            Long.MAX_VALUE
+    };
+
+    private final String label;
+    private final StepPhase phase;
+    private final long[] bucketCounts = new long[BUCKET_UPPER_BOUNDS_MILLIS.length];
+    private long count;
+    private long totalMillis;
+    private long maxMillis;
+
+    PhaseHistogram(String label, StepPhase phase) {
+        this.label = label;
+        this.phase = phase;
+    }
+
+    synchronized void record(long durationMillis) {
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS_MILLIS.length; i++) {
+            if (durationMillis <= BUCKET_UPPER_BOUNDS_MILLIS[i]) {
+                bucketCounts[i]++;
+                break;
+            }
+        }
+
+        count++;
+        totalMillis += durationMillis;
+        maxMillis = Math.max(maxMillis, durationMillis);
+    }
+
+    @Exported
+    public String getLabel() {
+        return label;
+    }
+
+    @Exported
+    public String getPhase() {
+        return phase.name();
+    }
+
+    @Exported
+    public synchronized long getCount() {
+        return count;
+    }
+
+    @Exported
+    public synchronized long getTotalMillis() {
+        return totalMillis;
+    }
+
+    @Exported
+    public synchronized long getMaxMillis() {
+        return maxMillis;
+    }
+
+    @Exported
+    public List<Long> getBucketUpperBoundsMillis() {
+        return Arrays.stream(BUCKET_UPPER_BOUNDS_MILLIS).boxed().collect(Collectors.toList());
+    }
+
+    @Exported
+    public synchronized List<Long> getBucketCounts() {
+        return Arrays.stream(bucketCounts).boxed().collect(Collectors.toList());
+    }
+
+}
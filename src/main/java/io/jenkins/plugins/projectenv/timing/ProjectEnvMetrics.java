@@ -0,0 +1,132 @@
+package io.jenkins.plugins.projectenv.timing;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.model.Api;
+import hudson.model.Node;
+import hudson.model.RootAction;
+import hudson.model.labels.LabelAtom;
+import io.jenkins.plugins.projectenv.cli.LatestCliVersionResolver;
+import io.jenkins.plugins.projectenv.cli.MirrorHealth;
+import io.jenkins.plugins.projectenv.cli.MirrorSelector;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Controller-wide metrics of all {@code withProjectEnv} blocks, readable through the REST API at
+ * {@code /projectEnvMetrics/api/json}.
+ */
+@Extension
+@ExportedBean
+public class ProjectEnvMetrics implements RootAction {
+
+    private final Map<String, PhaseHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, PhaseHistogram> architectureHistograms = new ConcurrentHashMap<>();
+
+    private final AtomicLong cliCacheHitCount = new AtomicLong();
+    private final AtomicLong cliCacheMissCount = new AtomicLong();
+    private final AtomicLong toolInfoCacheHitCount = new AtomicLong();
+    private final AtomicLong toolInfoCacheMissCount = new AtomicLong();
+
+    public static ProjectEnvMetrics get() {
+        return ExtensionList.lookupSingleton(ProjectEnvMetrics.class);
+    }
+
+    public void record(Node node, StepTiming timing) {
+        timing.getPhaseDurations().forEach((phase, duration) -> record(node, phase, duration));
+
+        // allows to compare the startup time of native builds with emulated ones
+        String cliArchitecture = timing.getCliArchitecture();
+        if (cliArchitecture != null) {
+            timing.getPhaseDurations().forEach((phase, duration) -> architectureHistograms
+                    .computeIfAbsent(cliArchitecture + "/" + phase, key -> new PhaseHistogram(cliArchitecture, phase))
+                    .record(duration));
+        }
+    }
+
+    public void record(Node node, StepPhase phase, long durationMillis) {
+        for (LabelAtom label : node.getAssignedLabels()) {
+            histograms.computeIfAbsent(label.getName() + "/" + phase, key -> new PhaseHistogram(label.getName(), phase))
+                    .record(durationMillis);
+        }
+    }
+
+    public void recordCliCacheLookup(boolean hit) {
+        (hit ? cliCacheHitCount : cliCacheMissCount).incrementAndGet();
+    }
+
+    public void recordToolInfoCacheLookup(boolean hit) {
+        (hit ? toolInfoCacheHitCount : toolInfoCacheMissCount).incrementAndGet();
+    }
+
+    @Exported
+    public List<PhaseHistogram> getHistograms() {
+        return new ArrayList<>(histograms.values());
+    }
+
+    /**
+     * @return the histograms of the phases per architecture of the Project-Env CLI build, where the label of each
+     * histogram is the architecture
+     */
+    @Exported
+    public List<PhaseHistogram> getArchitectureHistograms() {
+        return new ArrayList<>(architectureHistograms.values());
+    }
+
+    @Exported
+    public double getCliCacheHitRatio() {
+        return ratio(cliCacheHitCount.get(), cliCacheMissCount.get());
+    }
+
+    @Exported
+    public double getToolInfoCacheHitRatio() {
+        return ratio(toolInfoCacheHitCount.get(), toolInfoCacheMissCount.get());
+    }
+
+    @Exported
+    public double getLatestCliVersionCacheHitRatio() {
+        LatestCliVersionResolver resolver = LatestCliVersionResolver.get();
+
+        return ratio(resolver.getHitCount(), resolver.getMissCount());
+    }
+
+    @Exported
+    public List<MirrorHealth> getMirrors() {
+        return MirrorSelector.getHealth();
+    }
+
+    private static double ratio(long hitCount, long missCount) {
+        long total = hitCount + missCount;
+
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public Api getApi() {
+        Jenkins.get().checkPermission(Jenkins.SYSTEM_READ);
+
+        return new Api(this);
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Project-Env Metrics";
+    }
+
+    @Override
+    public String getUrlName() {
+        return "projectEnvMetrics";
+    }
+
+}
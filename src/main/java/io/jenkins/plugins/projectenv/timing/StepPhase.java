@@ -0,0 +1,27 @@
+package io.jenkins.plugins.projectenv.timing;
+
+public enum StepPhase {
+
+    AGENT_PROBE("agent probe"),
+    ENVIRONMENT_REUSE("environment reuse"),
+    VERSION_RESOLUTION("version resolution"),
+    DOWNLOAD("download"),
+    EXTRACTION("extraction"),
+    SNAPSHOT_RESTORE("snapshot restore"),
+    CLI_RUN("CLI run"),
+    JSON_PARSING("JSON parsing"),
+    SNAPSHOT_SAVE("snapshot save"),
+    MAVEN_WRAPPER("Maven wrapper"),
+    CLEANUP("cleanup");
+
+    private final String displayName;
+
+    StepPhase(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+}
@@ -0,0 +1,109 @@
+package io.jenkins.plugins.projectenv.timing;
+
+import java.io.Serializable;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations of the phases of a single {@code withProjectEnv} block. Phases which are executed multiple times
+ * (e.g. the Maven wrapper generation for multiple tools) are accumulated.
+ */
+public class StepTiming implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String id = UUID.randomUUID().toString();
+    private final String agent;
+    private final Map<StepPhase, Long> phaseDurations = new EnumMap<>(StepPhase.class);
+    private String cliArchitecture;
+    private final long createdAtMillis = System.currentTimeMillis();
+    private long startLatencyMillis = -1;
+
+    public StepTiming(String agent) {
+        this.agent = agent;
+    }
+
+    public <T> T time(StepPhase phase, Callable<T> callable) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return callable.call();
+        } finally {
+            record(phase, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    public void timeVoid(StepPhase phase, TimedRunnable runnable) throws Exception {
+        time(phase, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    public synchronized void record(StepPhase phase, long durationMillis) {
+        phaseDurations.merge(phase, durationMillis, Long::sum);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getAgent() {
+        return agent;
+    }
+
+    /**
+     * @return the architecture of the Project-Env CLI build which was used, which might differ from the one of the
+     * agent if no native build is available
+     */
+    public synchronized String getCliArchitecture() {
+        return cliArchitecture;
+    }
+
+    public synchronized void setCliArchitecture(String cliArchitecture) {
+        this.cliArchitecture = cliArchitecture;
+    }
+
+    /**
+     * Records that the body of the block has been started, which might be less than the sum of all phases, since
+     * independent phases are executed concurrently.
+     */
+    public synchronized void markBodyStarted() {
+        startLatencyMillis = System.currentTimeMillis() - createdAtMillis;
+    }
+
+    /**
+     * @return the wall-clock time until the body of the block has been started or -1, if it has not been started yet
+     */
+    public synchronized long getStartLatencyMillis() {
+        return startLatencyMillis;
+    }
+
+    public synchronized Map<StepPhase, Long> getPhaseDurations() {
+        return new EnumMap<>(phaseDurations);
+    }
+
+    public synchronized long getTotalMillis() {
+        return phaseDurations.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public synchronized String toCompactString() {
+        StringJoiner joiner = new StringJoiner(", ");
+        phaseDurations.forEach((phase, duration) -> joiner.add(phase.getDisplayName() + " " + duration + " ms"));
+
+        return joiner + " (total " + getTotalMillis() + " ms"
+                + (startLatencyMillis >= 0 ? ", body started after " + startLatencyMillis + " ms" : "")
+                + (cliArchitecture != null ? ", CLI " + cliArchitecture : "") + ")";
+    }
+
+    @FunctionalInterface
+    public interface TimedRunnable {
+
+        void run() throws Exception;
+
+    }
+
+}
@@ -0,0 +1,75 @@
+package io.jenkins.plugins.projectenv.timing;
+
+import hudson.model.Action;
+import hudson.model.Run;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the phase timings of all {@code withProjectEnv} blocks of a run and renders them on the run summary page.
+ */
+public class StepTimingAction implements Action {
+
+    private final List<StepTiming> timings = new ArrayList<>();
+
+    public static void record(Run<?, ?> run, StepTiming timing) {
+        synchronized (run) {
+            StepTimingAction action = run.getAction(StepTimingAction.class);
+            if (action == null) {
+                action = new StepTimingAction();
+                run.addAction(action);
+            }
+            action.add(timing);
+        }
+    }
+
+    /**
+     * Records the duration of the background cleanup, which usually completes after the run finished and is
+     * therefore persisted explicitly.
+     */
+    public static void recordCleanup(Run<?, ?> run, String timingId, long durationMillis) throws IOException {
+        synchronized (run) {
+            StepTimingAction action = run.getAction(StepTimingAction.class);
+            if (action == null) {
+                return;
+            }
+
+            for (StepTiming timing : action.getTimings()) {
+                if (timing.getId().equals(timingId)) {
+                    timing.record(StepPhase.CLEANUP, durationMillis);
+                }
+            }
+        }
+        run.save();
+    }
+
+    private synchronized void add(StepTiming timing) {
+        timings.add(timing);
+    }
+
+    public synchronized List<StepTiming> getTimings() {
+        return new ArrayList<>(timings);
+    }
+
+    public StepPhase[] getPhases() {
+        return StepPhase.values();
+    }
+
+    @Override
+    public String getIconFileName() {
+        return null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "Project-Env Timings";
+    }
+
+    @Override
+    public String getUrlName() {
+        return null;
+    }
+
+}
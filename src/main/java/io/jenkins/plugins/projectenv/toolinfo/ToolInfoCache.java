@@ -0,0 +1,161 @@
+package io.jenkins.plugins.projectenv.toolinfo;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Agent-side cache of the tool infos reported by the last Project-Env CLI run for a configuration file. An entry
+ * is only used if the configuration file content, the CLI executable and the agent platform are unchanged and all
+ * referenced paths still exist.
+ */
+public final class ToolInfoCache {
+
+    private static final String CACHE_DIRECTORY_NAME = "projectEnvToolInfos";
+
+    private ToolInfoCache() {
+        // noop
+    }
+
+    /**
+     * @param configFileId identifies the cache entry, which is the configuration file itself unless it is a copy with
+     *                     a varying name
+     */
+    public static Map<String, List<ToolInfo>> get(FilePath workspace, FilePath temporaryDirectory, String configFile, String configFileId, String executable) throws Exception {
+        String cacheFile = getCacheFile(temporaryDirectory, configFileId).getRemote();
+        String rawToolInfos = workspace.act(new GetCallable(cacheFile, configFile, executable));
+
+        return rawToolInfos != null ? ToolInfoParser.fromJson(rawToolInfos) : null;
+    }
+
+    public static void put(FilePath workspace, FilePath temporaryDirectory, String configFile, String configFileId, String executable, Map<String, List<ToolInfo>> toolInfos) throws Exception {
+        String cacheFile = getCacheFile(temporaryDirectory, configFileId).getRemote();
+        workspace.act(new PutCallable(cacheFile, configFile, executable, ToolInfoParser.toJson(toolInfos)));
+    }
+
+    private static FilePath getCacheFile(FilePath temporaryDirectory, String configFileId) {
+        return temporaryDirectory.child(CACHE_DIRECTORY_NAME).child(Util.getDigestOf(configFileId) + ".json");
+    }
+
+    private static String computeKey(File workspace, String configFile, String executable) throws IOException {
+        String configFileContent = new String(Files.readAllBytes(workspace.toPath().resolve(configFile)), StandardCharsets.UTF_8);
+        File executableFile = new File(executable);
+
+        return Util.getDigestOf(configFileContent + "\n" +
+                executableFile.getAbsolutePath() + "\n" +
+                executableFile.length() + "\n" +
+                executableFile.lastModified() + "\n" +
+                System.getProperty("os.name") + "\n" +
+                System.getProperty("os.arch"));
+    }
+
+    private static boolean allPathsExist(File workspace, Map<String, List<ToolInfo>> allToolInfos) {
+        for (List<ToolInfo> toolInfos : allToolInfos.values()) {
+            for (ToolInfo toolInfo : toolInfos) {
+                for (String pathElement : toolInfo.getPathElements()) {
+                    if (!exists(workspace, pathElement)) {
+                        return false;
+                    }
+                }
+
+                if (toolInfo.getPrimaryExecutable().isPresent() && !exists(workspace, toolInfo.getPrimaryExecutable().get())) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean exists(File workspace, String path) {
+        return workspace.toPath().resolve(path).toFile().exists();
+    }
+
+    private static final class GetCallable extends MasterToSlaveFileCallable<String> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String cacheFile;
+        private final String configFile;
+        private final String executable;
+
+        private GetCallable(String cacheFile, String configFile, String executable) {
+            this.cacheFile = cacheFile;
+            this.configFile = configFile;
+            this.executable = executable;
+        }
+
+        @Override
+        public String invoke(File workspace, VirtualChannel channel) throws IOException {
+            File file = new File(cacheFile);
+            if (!file.isFile()) {
+                return null;
+            }
+
+            String key;
+            try {
+                key = computeKey(workspace, configFile, executable);
+            } catch (NoSuchFileException e) {
+                // let the Project-Env CLI report the missing configuration file
+                return null;
+            }
+
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            if (lines.size() == 2 && lines.get(0).equals(key)) {
+                String rawToolInfos = lines.get(1);
+                if (allPathsExist(workspace, ToolInfoParser.fromJson(rawToolInfos))) {
+                    return rawToolInfos;
+                }
+            }
+
+            Files.delete(file.toPath());
+            return null;
+        }
+
+    }
+
+    private static final class PutCallable extends MasterToSlaveFileCallable<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String cacheFile;
+        private final String configFile;
+        private final String executable;
+        private final String rawToolInfos;
+
+        private PutCallable(String cacheFile, String configFile, String executable, String rawToolInfos) {
+            this.cacheFile = cacheFile;
+            this.configFile = configFile;
+            this.executable = executable;
+            this.rawToolInfos = rawToolInfos;
+        }
+
+        @Override
+        public Void invoke(File workspace, VirtualChannel channel) throws IOException {
+            File file = new File(cacheFile);
+            Files.createDirectories(file.getParentFile().toPath());
+
+            String content = computeKey(workspace, configFile, executable) + "\n" + rawToolInfos;
+
+            // write to a temporary file first, so that concurrent readers never see a partially written entry
+            File temporaryFile = new File(cacheFile + ".tmp-" + UUID.randomUUID());
+            Files.write(temporaryFile.toPath(), content.getBytes(StandardCharsets.UTF_8));
+            Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            return null;
+        }
+
+    }
+
+}
@@ -0,0 +1,30 @@
+package io.jenkins.plugins.projectenv.toolinfo;
+
+import hudson.EnvVars;
+import org.apache.commons.lang.StringUtils;
+
+import java.util.List;
+
+public final class ToolInfoEnvironment {
+
+    public static final String PATH_VAR_PREFIX = "PATH+";
+
+    private ToolInfoEnvironment() {
+        // noop
+    }
+
+    /**
+     * Adds the path elements (as {@code PATH+} entries) and the environment variables of the given tool.
+     */
+    public static void apply(EnvVars envVars, String toolName, ToolInfo toolInfo) {
+        List<String> pathElements = toolInfo.getPathElements();
+        for (int i = 0; i < pathElements.size(); i++) {
+            String pathElement = pathElements.get(i);
+
+            envVars.put(PATH_VAR_PREFIX + StringUtils.upperCase(toolName) + "_" + i, pathElement);
+        }
+
+        envVars.putAll(toolInfo.getEnvironmentVariables());
+    }
+
+}
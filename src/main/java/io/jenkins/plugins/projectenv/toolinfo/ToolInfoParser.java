@@ -3,8 +3,17 @@ package io.jenkins.plugins.projectenv.toolinfo;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
@@ -13,16 +22,57 @@ public final class ToolInfoParser {
     private static final Type TOOL_INFOS_TYPE = new TypeToken<Map<String, List<ToolInfo>>>() {
     }.getType();
 
+    // Gson instances are thread-safe, so a single instance can be shared by all parsers
+    private static final Gson GSON = new GsonBuilder().registerTypeAdapterFactory(new GsonAdaptersToolInfo()).create();
+
     private ToolInfoParser() {
         // noop
     }
 
     public static Map<String, List<ToolInfo>> fromJson(String rawToolInfos) {
-        return createGson().fromJson(rawToolInfos, TOOL_INFOS_TYPE);
+        try {
+            return fromJson(new StringReader(rawToolInfos));
+        } catch (IOException e) {
+            throw new IllegalStateException("failed to read tool infos", e);
+        }
+    }
+
+    public static Map<String, List<ToolInfo>> fromJson(InputStream rawToolInfos) throws IOException {
+        return fromJson(new BufferedReader(new InputStreamReader(rawToolInfos, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Parses the tool infos from the given reader. Any leading output before the first line starting with a
+     * JSON object (e.g. log output of the Project-Env CLI) is skipped.
+     */
+    public static Map<String, List<ToolInfo>> fromJson(Reader rawToolInfos) throws IOException {
+        PushbackReader reader = new PushbackReader(rawToolInfos);
+        skipLeadingNoise(reader);
+
+        JsonReader jsonReader = GSON.newJsonReader(reader);
+        return GSON.fromJson(jsonReader, TOOL_INFOS_TYPE);
+    }
+
+    public static String toJson(Map<String, List<ToolInfo>> toolInfos) {
+        return GSON.toJson(toolInfos, TOOL_INFOS_TYPE);
     }
 
-    public static Gson createGson() {
-        return new GsonBuilder().registerTypeAdapterFactory(new GsonAdaptersToolInfo()).create();
+    private static void skipLeadingNoise(PushbackReader reader) throws IOException {
+        boolean lineStart = true;
+
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (c == '{' && lineStart) {
+                reader.unread(c);
+                return;
+            }
+
+            if (c == '\n' || c == '\r') {
+                lineStart = true;
+            } else if (c != ' ' && c != '\t') {
+                lineStart = false;
+            }
+        }
     }
 
 }
@@ -0,0 +1,33 @@
+package io.jenkins.plugins.projectenv;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs all JMH benchmarks of the plugin and writes the results as JSON, so that they can be compared between
+ * releases. Only executed with the {@code benchmark} profile, e.g. {@code mvn test -Pbenchmark}.
+ */
+public class BenchmarkRunner {
+
+    @Test
+    public void runBenchmarks() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("benchmark.enabled"));
+
+        Options options = new OptionsBuilder()
+                .include("io\\.jenkins\\.plugins\\.projectenv\\..*Benchmark")
+                .forks(1)
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .shouldFailOnError(true)
+                .resultFormat(ResultFormatType.JSON)
+                .result(System.getProperty("benchmark.result", "target/jmh-result.json"))
+                .build();
+
+        new Runner(options).run();
+    }
+
+}
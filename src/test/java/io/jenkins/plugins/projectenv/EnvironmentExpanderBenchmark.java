@@ -0,0 +1,89 @@
+package io.jenkins.plugins.projectenv;
+
+import hudson.EnvVars;
+import org.jenkinsci.plugins.workflow.steps.EnvironmentExpander;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the expansion of the environment as done for every nested {@code sh} call within (possibly nested)
+ * {@code withProjectEnv} blocks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EnvironmentExpanderBenchmark {
+
+    @Param({"1", "5"})
+    public int nestingDepth;
+
+    private EnvVars baseEnvVars;
+    private EnvironmentExpander expander;
+    private EnvironmentExpander overrideAllExpander;
+
+    @Setup
+    public void setup() {
+        baseEnvVars = new EnvVars();
+        for (int i = 0; i < 50; i++) {
+            baseEnvVars.put("VARIABLE_" + i, "value" + i);
+        }
+        baseEnvVars.put("PATH", "/usr/local/bin:/usr/bin:/bin");
+
+        for (int depth = 0; depth < nestingDepth; depth++) {
+            EnvVars projectEnvVars = new EnvVars();
+            for (int tool = 0; tool < 10; tool++) {
+                projectEnvVars.put("PATH+TOOL" + depth + "_" + tool + "_0", "/workspace/.tools/tool" + tool + "/bin");
+                projectEnvVars.put("TOOL" + depth + "_" + tool + "_HOME", "/workspace/.tools/tool" + tool);
+            }
+
+            expander = WithProjectEnvStepExecution.createEnvironmentExpander(expander, projectEnvVars);
+            overrideAllExpander = EnvironmentExpander.merge(overrideAllExpander, new OverrideAllExpander(projectEnvVars));
+        }
+    }
+
+    @Benchmark
+    public EnvVars expand() throws Exception {
+        EnvVars envVars = new EnvVars(baseEnvVars);
+        expander.expand(envVars);
+
+        return envVars;
+    }
+
+    /**
+     * Baseline of the expander which applied the whole project environment with {@link EnvVars#overrideAll(java.util.Map)}.
+     */
+    @Benchmark
+    public EnvVars expandWithOverrideAll() throws Exception {
+        EnvVars envVars = new EnvVars(baseEnvVars);
+        overrideAllExpander.expand(envVars);
+
+        return envVars;
+    }
+
+    private static final class OverrideAllExpander extends EnvironmentExpander {
+
+        private static final long serialVersionUID = 1L;
+
+        private final EnvVars projectEnvVars;
+
+        private OverrideAllExpander(EnvVars projectEnvVars) {
+            this.projectEnvVars = projectEnvVars;
+        }
+
+        @Override
+        public void expand(@Nonnull EnvVars envVars) {
+            envVars.overrideAll(projectEnvVars);
+        }
+
+    }
+
+}
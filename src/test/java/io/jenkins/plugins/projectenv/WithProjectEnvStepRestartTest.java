@@ -0,0 +1,99 @@
+package io.jenkins.plugins.projectenv;
+
+import hudson.FilePath;
+import io.jenkins.plugins.projectenv.lock.AgentLock;
+import org.apache.commons.io.IOUtils;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsSessionRule;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WithProjectEnvStepRestartTest {
+
+    private static final String JOB_NAME = "project";
+
+    // survives the restart, since the sessions share the JVM
+    private static AgentLock toolsDirectoryLock;
+
+    @Rule
+    public JenkinsSessionRule sessions = new JenkinsSessionRule();
+
+    @Test
+    public void testRestartAfterBodyStartedDoesNotStartBodyAgain() throws Throwable {
+        String projectEnvConfigFileContent = readTestResource("project-env-empty.toml");
+
+        sessions.then(jenkins -> {
+            WorkflowJob project = jenkins.createProject(WorkflowJob.class, JOB_NAME);
+            project.setDefinition(new CpsFlowDefinition("" +
+                    "node {\n" +
+                    "  writeFile text: '" + projectEnvConfigFileContent + "', file: 'project-env.toml'\n" +
+                    "  withProjectEnv(cliVersion: '3.4.1') {\n" +
+                    "    echo 'body started'\n" +
+                    "    waitUntil { fileExists 'continue' }\n" +
+                    "  }\n" +
+                    "}", true));
+
+            WorkflowRun run = project.scheduleBuild2(0).waitForStart();
+            jenkins.waitForMessage("body started", run);
+        });
+
+        sessions.then(jenkins -> {
+            WorkflowJob project = jenkins.jenkins.getItemByFullName(JOB_NAME, WorkflowJob.class);
+            WorkflowRun run = project.getBuildByNumber(1);
+            jenkins.jenkins.getWorkspaceFor(project).child("continue").write("", StandardCharsets.UTF_8.name());
+
+            jenkins.assertBuildStatusSuccess(jenkins.waitForCompletion(run));
+            assertThat(run.getLog())
+                    .containsOnlyOnce("body started")
+                    .doesNotContain("continuing start of withProjectEnv");
+        });
+    }
+
+    @Test
+    public void testRestartDuringStartContinuesFromCheckpoint() throws Throwable {
+        String projectEnvConfigFileContent = readTestResource("project-env-empty.toml");
+
+        sessions.then(jenkins -> {
+            WorkflowJob project = jenkins.createProject(WorkflowJob.class, JOB_NAME);
+            project.setDefinition(new CpsFlowDefinition("" +
+                    "node {\n" +
+                    "  writeFile text: '" + projectEnvConfigFileContent + "', file: 'project-env.toml'\n" +
+                    "  withProjectEnv(cliVersion: '3.4.1') {\n" +
+                    "    echo 'body started'\n" +
+                    "  }\n" +
+                    "}", true));
+
+            // the step waits for the lock on the tools directory after the CLI has been provisioned
+            FilePath workspace = jenkins.jenkins.getWorkspaceFor(project);
+            toolsDirectoryLock = AgentLock.acquire(workspace.child(".tools"));
+
+            WorkflowRun run = project.scheduleBuild2(0).waitForStart();
+            jenkins.waitForMessage("downloaded Project-Env CLI", run);
+        });
+
+        sessions.then(jenkins -> {
+            toolsDirectoryLock.close();
+
+            WorkflowJob project = jenkins.jenkins.getItemByFullName(JOB_NAME, WorkflowJob.class);
+            WorkflowRun run = project.getBuildByNumber(1);
+
+            jenkins.assertBuildStatusSuccess(jenkins.waitForCompletion(run));
+            assertThat(run.getLog())
+                    .contains("continuing start of withProjectEnv after controller restart")
+                    .containsOnlyOnce("downloaded Project-Env CLI")
+                    .containsOnlyOnce("body started");
+        });
+    }
+
+    private static String readTestResource(String resource) throws IOException {
+        return IOUtils.toString(WithProjectEnvStepRestartTest.class.getResource(resource), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,244 @@
+package io.jenkins.plugins.projectenv;
+
+import com.sun.net.httpserver.HttpServer;
+import hudson.FilePath;
+import hudson.model.Result;
+import hudson.model.TaskListener;
+import hudson.remoting.Channel;
+import hudson.slaves.ComputerLauncher;
+import hudson.slaves.DumbSlave;
+import hudson.slaves.SlaveComputer;
+import io.jenkins.plugins.projectenv.config.CliMirror;
+import io.jenkins.plugins.projectenv.config.ProjectEnvConfiguration;
+import io.jenkins.plugins.projectenv.timing.StepTiming;
+import io.jenkins.plugins.projectenv.timing.StepTimingAction;
+import jenkins.model.Jenkins;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.lang3.SystemUtils;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.recipes.WithTimeout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures how the overhead of {@code withProjectEnv} grows with concurrency, using wide {@code parallel} fan-outs
+ * on multiple local agents. The CLI archive is served by a local stand-in of GitHub and contains a fake
+ * {@code project-env-cli}, so the test runs offline. Only executed with the {@code scale-test} profile.
+ */
+public class WithProjectEnvStepScaleTest {
+
+    private static final String CLI_VERSION = "0.0.0-scale";
+
+    private final int agentCount = Integer.getInteger("scale.agents", 2);
+    private final int parallelism = Integer.getInteger("scale.parallelism", 10);
+    private final int buildCount = Integer.getInteger("scale.builds", 2);
+    private final int toolCount = Integer.getInteger("scale.toolCount", 10);
+
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private HttpServer server;
+    private final List<CountingComputerLauncher> launchers = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("scale.enabled"));
+        Assume.assumeFalse(SystemUtils.IS_OS_WINDOWS);
+
+        byte[] cliArchive = createFakeCliArchive();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // the fake CLI is a shell script, so the same archive serves all architectures
+        server.createContext("/download/v" + CLI_VERSION + "/", exchange -> {
+            exchange.sendResponseHeaders(200, cliArchive.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(cliArchive);
+            }
+        });
+        server.start();
+
+        ProjectEnvConfiguration.get().setCliMirrors(Collections.singletonList(
+                new CliMirror("http://127.0.0.1:" + server.getAddress().getPort() + "/download/v{0}/cli-{0}-{1}-{2}.{3}")));
+
+        for (int i = 0; i < agentCount; i++) {
+            CountingComputerLauncher launcher = new CountingComputerLauncher();
+            DumbSlave agent = new DumbSlave("scale-agent-" + i, temporaryFolder.newFolder().getAbsolutePath(), launcher);
+            agent.setNumExecutors(parallelism);
+            agent.setLabelString("scale");
+            jenkins.jenkins.addNode(agent);
+            jenkins.waitOnline(agent);
+
+            launchers.add(launcher);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    @WithTimeout(3600)
+    public void testParallelStepExecution() throws Exception {
+        WorkflowJob project = jenkins.createProject(WorkflowJob.class);
+        project.setDefinition(new CpsFlowDefinition("" +
+                "def branches = [:]\n" +
+                "for (int i = 0; i < " + parallelism + "; i++) {\n" +
+                "  branches['branch' + i] = {\n" +
+                "    node('scale') {\n" +
+                "      writeFile text: 'tools_directory = \".tools\"', file: 'project-env.toml'\n" +
+                "      withProjectEnv(cliVersion: '" + CLI_VERSION + "') {\n" +
+                "        sh 'test -n \"$TOOL0_HOME\"'\n" +
+                "      }\n" +
+                "    }\n" +
+                "  }\n" +
+                "}\n" +
+                "parallel branches\n", true));
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        threadMXBean.resetPeakThreadCount();
+        long remotingBytesBefore = getRemotingBytes();
+
+        List<Long> stepStartLatencies = new ArrayList<>();
+        for (int build = 0; build < buildCount; build++) {
+            WorkflowRun run = jenkins.assertBuildStatus(Result.SUCCESS, project.scheduleBuild2(0));
+
+            StepTimingAction timingAction = run.getAction(StepTimingAction.class);
+            assertThat(timingAction).isNotNull();
+            for (StepTiming timing : timingAction.getTimings()) {
+                stepStartLatencies.add(timing.getStartLatencyMillis());
+            }
+        }
+        assertThat(stepStartLatencies).hasSize(buildCount * parallelism);
+
+        long remotingBytesPerBuild = (getRemotingBytes() - remotingBytesBefore) / buildCount;
+        writeReport(stepStartLatencies, threadMXBean.getPeakThreadCount(), threadMXBean.getThreadCount(), remotingBytesPerBuild);
+    }
+
+    private byte[] createFakeCliArchive() throws Exception {
+        File cliDirectory = temporaryFolder.newFolder();
+        File cli = new File(cliDirectory, "project-env-cli");
+        Files.write(cli.toPath(), createFakeCliScript().getBytes(StandardCharsets.UTF_8));
+        new FilePath(cli).chmod(0755);
+
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (OutputStream outputStream = FilePath.TarCompression.GZIP.compress(archive)) {
+            new FilePath(cliDirectory).tar(outputStream, "**");
+        }
+
+        return archive.toByteArray();
+    }
+
+    private String createFakeCliScript() {
+        return "#!/bin/sh\n" +
+                "echo 'installing tools...' >&2\n" +
+                "printf '{'\n" +
+                "i=0\n" +
+                "while [ $i -lt " + toolCount + " ]; do\n" +
+                "  mkdir -p \".tools/tool$i/bin\"\n" +
+                "  [ $i -gt 0 ] && printf ','\n" +
+                "  printf '\"tool%d\":[{\"environmentVariables\":{\"TOOL%d_HOME\":\"%s/.tools/tool%d\"},\"pathElements\":[\"%s/.tools/tool%d/bin\"],\"unhandledProjectResources\":{}}]' $i $i \"$PWD\" $i \"$PWD\" $i\n" +
+                "  i=$((i + 1))\n" +
+                "done\n" +
+                "printf '}'\n";
+    }
+
+    private long getRemotingBytes() {
+        return launchers.stream().mapToLong(CountingComputerLauncher::getTransferredBytes).sum();
+    }
+
+    private void writeReport(List<Long> stepStartLatencies, int peakThreadCount, int threadCount, long remotingBytesPerBuild) throws IOException {
+        Collections.sort(stepStartLatencies);
+
+        String report = String.format(Locale.ROOT, "{%n" +
+                        "  \"agents\": %d,%n" +
+                        "  \"parallelism\": %d,%n" +
+                        "  \"builds\": %d,%n" +
+                        "  \"toolCount\": %d,%n" +
+                        "  \"stepStartLatencyP50Millis\": %d,%n" +
+                        "  \"stepStartLatencyP99Millis\": %d,%n" +
+                        "  \"controllerPeakThreadCount\": %d,%n" +
+                        "  \"controllerThreadCount\": %d,%n" +
+                        "  \"remotingBytesPerBuild\": %d%n" +
+                        "}%n",
+                agentCount, parallelism, buildCount, toolCount,
+                percentile(stepStartLatencies, 50), percentile(stepStartLatencies, 99),
+                peakThreadCount, threadCount, remotingBytesPerBuild);
+
+        System.out.print(report);
+        Files.write(new File(System.getProperty("scale.report", "target/scale-test-report.json")).toPath(), report.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long percentile(List<Long> sortedValues, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedValues.size()) - 1;
+
+        return sortedValues.get(Math.max(0, index));
+    }
+
+    /**
+     * Launches an agent process and counts the bytes transferred over its remoting channel.
+     */
+    private static class CountingComputerLauncher extends ComputerLauncher {
+
+        private transient CountingInputStream inputStream;
+        private transient CountingOutputStream outputStream;
+
+        @Override
+        public void launch(SlaveComputer computer, TaskListener listener) throws IOException, InterruptedException {
+            File agentJar;
+            try {
+                agentJar = new File(Jenkins.get().getJnlpJars("agent.jar").getURL().toURI());
+            } catch (Exception e) {
+                throw new IOException("failed to resolve agent.jar", e);
+            }
+
+            Process process = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getAbsolutePath(), "-jar", agentJar.getAbsolutePath())
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+
+            inputStream = new CountingInputStream(process.getInputStream());
+            outputStream = new CountingOutputStream(process.getOutputStream());
+            computer.setChannel(inputStream, outputStream, listener.getLogger(), new Channel.Listener() {
+                @Override
+                public void onClosed(Channel channel, IOException cause) {
+                    process.destroy();
+                }
+            });
+        }
+
+        long getTransferredBytes() {
+            return inputStream.getByteCount() + outputStream.getByteCount();
+        }
+
+    }
+
+}
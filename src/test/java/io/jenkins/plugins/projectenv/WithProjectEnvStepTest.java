@@ -1,7 +1,11 @@
 package io.jenkins.plugins.projectenv;
 
+import hudson.FilePath;
 import hudson.model.Label;
 import hudson.model.Result;
+import hudson.slaves.DumbSlave;
+import io.jenkins.plugins.projectenv.timing.StepPhase;
+import io.jenkins.plugins.projectenv.timing.StepTimingAction;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
@@ -15,6 +19,7 @@ import org.jvnet.hudson.test.recipes.WithTimeout;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -23,9 +28,11 @@ public class WithProjectEnvStepTest {
     @Rule
     public JenkinsRule jenkins = new JenkinsRule();
 
+    private DumbSlave slave;
+
     @Before
     public void startSlave() throws Exception {
-        jenkins.createSlave(Label.get("slave"));
+        slave = jenkins.createSlave(Label.get("slave"));
     }
 
     @Test
@@ -70,8 +77,8 @@ public class WithProjectEnvStepTest {
                 .contains("installing nodejs...")
                 .contains("v17.2.0")
                 .contains("1.22.18")
-                // assert that Project-Env CLI is on the PATH
-                .containsPattern("workspace/test\\d+@tmp/withProjectEnv[^/]+/project-env-cli");
+                // assert that Project-Env CLI is on the PATH and has been served from the agent cache
+                .containsPattern("caches/project-env-cli/[^/]+/[^/]+/project-env-cli");
     }
 
     @Test
@@ -87,7 +94,21 @@ public class WithProjectEnvStepTest {
                 "  }\n" +
                 "}"));
 
-        jenkins.assertBuildStatus(Result.SUCCESS, project.scheduleBuild2(0));
+        WorkflowRun run = jenkins.assertBuildStatus(Result.SUCCESS, project.scheduleBuild2(0));
+        assertThat(run.getLog()).contains("withProjectEnv timings: agent probe");
+
+        StepTimingAction timingAction = run.getAction(StepTimingAction.class);
+        assertThat(timingAction).isNotNull();
+        assertThat(timingAction.getTimings()).hasSize(1);
+        assertThat(timingAction.getTimings().get(0).getPhaseDurations()).containsKeys(StepPhase.AGENT_PROBE, StepPhase.CLI_RUN);
+
+        // the temporary directory is removed in the background after the body completed
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(60);
+        while (!timingAction.getTimings().get(0).getPhaseDurations().containsKey(StepPhase.CLEANUP)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertThat(timingAction.getTimings().get(0).getPhaseDurations()).containsKey(StepPhase.CLEANUP);
     }
 
     @Test
@@ -104,6 +125,74 @@ public class WithProjectEnvStepTest {
         assertThat(run.getLog()).contains("failed to install tools: FileNotFoundException");
     }
 
+    @Test
+    @WithTimeout(600)
+    public void testStepExecutionReusesCachedCli() throws Exception {
+        String projectEnvConfigFileContent = readTestResource("project-env-empty.toml");
+
+        WorkflowJob project = jenkins.createProject(WorkflowJob.class);
+        project.setDefinition(createOsSpecificPipelineDefinition("" +
+                "node('slave') {\n" +
+                "  writeFile text: '" + projectEnvConfigFileContent + "', file: 'project-env.toml'\n" +
+                "  withProjectEnv(cliVersion: '3.4.1') {\n" +
+                "  }\n" +
+                "}"));
+
+        jenkins.assertBuildStatus(Result.SUCCESS, project.scheduleBuild2(0));
+
+        FilePath cacheEntries = slave.getRootPath().child("caches/project-env-cli/3.4.1");
+        assertThat(cacheEntries.listDirectories()).hasSize(1);
+
+        FilePath cacheEntry = cacheEntries.listDirectories().get(0);
+        long lastModified = cacheEntry.lastModified();
+
+        jenkins.assertBuildStatus(Result.SUCCESS, project.scheduleBuild2(0));
+        assertThat(cacheEntries.listDirectories()).hasSize(1);
+        assertThat(cacheEntry.lastModified()).isEqualTo(lastModified);
+    }
+
+    @Test
+    @WithTimeout(600)
+    public void testStepExecutionReusesToolsOfPreviousRun() throws Exception {
+        String projectEnvConfigFileContent = readTestResource("project-env-empty.toml");
+
+        WorkflowJob project = jenkins.createProject(WorkflowJob.class);
+        project.setDefinition(createOsSpecificPipelineDefinition("" +
+                "node('slave') {\n" +
+                "  writeFile text: '" + projectEnvConfigFileContent + "', file: 'project-env.toml'\n" +
+                "  withProjectEnv(cliVersion: '3.4.1') {\n" +
+                "  }\n" +
+                "}"));
+
+        WorkflowRun firstRun = jenkins.assertBuildStatus(Result.SUCCESS, project.scheduleBuild2(0));
+        assertThat(firstRun.getLog()).doesNotContain("reusing tools of previous Project-Env CLI run");
+
+        WorkflowRun secondRun = jenkins.assertBuildStatus(Result.SUCCESS, project.scheduleBuild2(0));
+        assertThat(secondRun.getLog()).contains("reusing tools of previous Project-Env CLI run");
+    }
+
+    @Test
+    @WithTimeout(600)
+    public void testStepExecutionReusesEnvironmentWithinRun() throws Exception {
+        String projectEnvConfigFileContent = readTestResource("project-env-empty.toml");
+
+        WorkflowJob project = jenkins.createProject(WorkflowJob.class);
+        project.setDefinition(createOsSpecificPipelineDefinition("" +
+                "node('slave') {\n" +
+                "  writeFile text: '" + projectEnvConfigFileContent + "', file: 'project-env.toml'\n" +
+                "  withProjectEnv(cliVersion: '3.4.1') {\n" +
+                "  }\n" +
+                "  withProjectEnv(cliVersion: '3.4.1') {\n" +
+                "  }\n" +
+                "  writeFile text: '" + projectEnvConfigFileContent + "\\n', file: 'project-env.toml'\n" +
+                "  withProjectEnv(cliVersion: '3.4.1') {\n" +
+                "  }\n" +
+                "}"));
+
+        WorkflowRun run = jenkins.assertBuildStatus(Result.SUCCESS, project.scheduleBuild2(0));
+        assertThat(run.getLog()).containsOnlyOnce("reusing environment resolved by a previous withProjectEnv block");
+    }
+
     private String readTestResource(String resource) throws IOException {
         return IOUtils.toString(getClass().getResource(resource), StandardCharsets.UTF_8);
     }
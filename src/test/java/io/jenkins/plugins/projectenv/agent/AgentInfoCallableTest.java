@@ -0,0 +1,27 @@
+package io.jenkins.plugins.projectenv.agent;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AgentInfoCallableTest {
+
+    @Test
+    public void testParseCpuArchitecture() {
+        assertThat(AgentInfoCallable.parseCpuArchitecture("amd64")).isEqualTo(CpuArchitecture.AMD_64);
+        assertThat(AgentInfoCallable.parseCpuArchitecture("x86_64")).isEqualTo(CpuArchitecture.AMD_64);
+        assertThat(AgentInfoCallable.parseCpuArchitecture("AMD64")).isEqualTo(CpuArchitecture.AMD_64);
+        assertThat(AgentInfoCallable.parseCpuArchitecture("aarch64")).isEqualTo(CpuArchitecture.AARCH_64);
+        assertThat(AgentInfoCallable.parseCpuArchitecture("ARM64")).isEqualTo(CpuArchitecture.AARCH_64);
+        assertThat(AgentInfoCallable.parseCpuArchitecture("x86")).isEqualTo(CpuArchitecture.UNKNOWN);
+        assertThat(AgentInfoCallable.parseCpuArchitecture(null)).isEqualTo(CpuArchitecture.UNKNOWN);
+    }
+
+    @Test
+    public void testCallDetectsCpuArchitecture() throws Exception {
+        AgentInfo agentInfo = new AgentInfoCallable(null, "project-env-cli").call();
+
+        assertThat(agentInfo.getCpuArchitecture()).isNotNull();
+    }
+
+}
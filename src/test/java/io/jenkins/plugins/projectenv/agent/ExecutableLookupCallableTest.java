@@ -0,0 +1,61 @@
+package io.jenkins.plugins.projectenv.agent;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ExecutableLookupCallableTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testFindSkipsNonExecutableFiles() throws Exception {
+        File firstDirectory = temporaryFolder.newFolder();
+        File secondDirectory = temporaryFolder.newFolder();
+        createFile(firstDirectory, "tool", false);
+        File executable = createFile(secondDirectory, "tool", true);
+
+        String searchPath = firstDirectory + ":" + secondDirectory;
+
+        assertThat(ExecutableLookupCallable.find(searchPath, "tool", false, null))
+                .contains(executable.getAbsolutePath());
+    }
+
+    @Test
+    public void testFindWithoutMatch() throws Exception {
+        File directory = temporaryFolder.newFolder();
+
+        assertThat(ExecutableLookupCallable.find(directory.getAbsolutePath(), "tool", false, null)).isEmpty();
+        assertThat(ExecutableLookupCallable.find(null, "tool", false, null)).isEmpty();
+    }
+
+    @Test
+    public void testFindOnWindowsAppliesPathExt() throws Exception {
+        File firstDirectory = temporaryFolder.newFolder();
+        File secondDirectory = temporaryFolder.newFolder();
+        createFile(firstDirectory, "tool", true);
+        File executable = createFile(secondDirectory, "tool.cmd", false);
+
+        String searchPath = "\"" + firstDirectory + "\";" + secondDirectory;
+
+        assertThat(ExecutableLookupCallable.find(searchPath, "tool", true, ".EXE;.CMD"))
+                .contains(executable.getAbsolutePath());
+        assertThat(ExecutableLookupCallable.find(searchPath, "tool.cmd", true, ".EXE;.CMD"))
+                .contains(executable.getAbsolutePath());
+    }
+
+    private File createFile(File directory, String name, boolean executable) throws IOException {
+        File file = new File(directory, name);
+        assertThat(file.createNewFile()).isTrue();
+        assertThat(file.setExecutable(executable)).isTrue();
+
+        return file;
+    }
+
+}
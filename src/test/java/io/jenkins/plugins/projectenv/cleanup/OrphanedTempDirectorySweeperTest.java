@@ -0,0 +1,88 @@
+package io.jenkins.plugins.projectenv.cleanup;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrphanedTempDirectorySweeperTest {
+
+    private static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final long MIN_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRemovesDirectoriesExceedingMaxAge() throws Exception {
+        File expired = createTemporaryDirectory("job@tmp/withProjectEnv1", TimeUnit.DAYS.toMillis(2));
+        File recent = createTemporaryDirectory("job@tmp/withProjectEnv2", TimeUnit.HOURS.toMillis(2));
+        File foreign = createTemporaryDirectory("job@tmp/durable-1234", TimeUnit.DAYS.toMillis(2));
+
+        int removed = sweep(Long.MAX_VALUE);
+
+        assertThat(removed).isEqualTo(1);
+        assertThat(expired).doesNotExist();
+        assertThat(recent).exists();
+        assertThat(foreign).exists();
+    }
+
+    @Test
+    public void testRemovesOldestDirectoriesExceedingMaxTotalSize() throws Exception {
+        File oldest = createTemporaryDirectory("first@tmp/withProjectEnv1", TimeUnit.HOURS.toMillis(4));
+        File older = createTemporaryDirectory("second@tmp/withProjectEnv2", TimeUnit.HOURS.toMillis(3));
+        File inUse = createTemporaryDirectory("third@tmp/withProjectEnv3", TimeUnit.MINUTES.toMillis(5));
+
+        long directorySizeBytes = FileUtils.sizeOfDirectory(oldest);
+        int removed = sweep(2 * directorySizeBytes);
+
+        assertThat(removed).isEqualTo(1);
+        assertThat(oldest).doesNotExist();
+        assertThat(older).exists();
+        assertThat(inUse).exists();
+
+        // directories younger than the minimum age are kept, even if the limit is still exceeded
+        removed = sweep(0);
+
+        assertThat(removed).isEqualTo(1);
+        assertThat(older).doesNotExist();
+        assertThat(inUse).exists();
+    }
+
+    @Test
+    public void testKeepsDirectoriesOfRunningSteps() throws Exception {
+        File running = createTemporaryDirectory("job@tmp/withProjectEnv1", TimeUnit.DAYS.toMillis(2));
+        File expired = createTemporaryDirectory("job@tmp/withProjectEnv2", TimeUnit.DAYS.toMillis(2));
+
+        int removed = sweep(Set.of("withProjectEnv1"), 0);
+
+        assertThat(removed).isEqualTo(1);
+        assertThat(running).exists();
+        assertThat(expired).doesNotExist();
+    }
+
+    private int sweep(long maxTotalSizeBytes) {
+        return sweep(Set.of(), maxTotalSizeBytes);
+    }
+
+    private int sweep(Set<String> activeTemporaryDirectoryNames, long maxTotalSizeBytes) {
+        return new OrphanedTempDirectorySweeper.SweepCallable("@tmp", activeTemporaryDirectoryNames, MAX_AGE_MILLIS, MIN_AGE_MILLIS, maxTotalSizeBytes)
+                .invoke(temporaryFolder.getRoot(), null);
+    }
+
+    private File createTemporaryDirectory(String path, long ageMillis) throws Exception {
+        File directory = new File(temporaryFolder.getRoot(), path);
+        FileUtils.writeStringToFile(new File(directory, "cli/project-env-cli"), "cli", StandardCharsets.UTF_8);
+        directory.setLastModified(System.currentTimeMillis() - ageMillis);
+
+        return directory;
+    }
+
+}
@@ -0,0 +1,34 @@
+package io.jenkins.plugins.projectenv.cleanup;
+
+import hudson.FilePath;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TempDirectoryReaperTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRemovesScheduledDirectoriesInBatch() throws Exception {
+        FilePath firstDirectory = new FilePath(temporaryFolder.newFolder("withProjectEnv1"));
+        firstDirectory.child("cli/project-env-cli").write("cli", StandardCharsets.UTF_8.name());
+        FilePath secondDirectory = new FilePath(temporaryFolder.newFolder("withProjectEnv2"));
+
+        CompletableFuture<Long> firstRemoval = TempDirectoryReaper.schedule(firstDirectory);
+        CompletableFuture<Long> secondRemoval = TempDirectoryReaper.schedule(secondDirectory);
+
+        assertThat(firstRemoval.get(10, TimeUnit.SECONDS)).isNotNegative();
+        assertThat(secondRemoval.get(10, TimeUnit.SECONDS)).isNotNegative();
+        assertThat(firstDirectory.exists()).isFalse();
+        assertThat(secondDirectory.exists()).isFalse();
+    }
+
+}
@@ -0,0 +1,89 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import com.sun.net.httpserver.HttpServer;
+import hudson.FilePath;
+import hudson.Util;
+import hudson.model.TaskListener;
+import hudson.util.StreamTaskListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CliArchiveDownloaderTest {
+
+    private static final byte[] ARCHIVE = "archive".getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final TaskListener listener = StreamTaskListener.fromStdout();
+
+    private HttpServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/cli.tar.gz", exchange -> {
+            exchange.sendResponseHeaders(200, ARCHIVE.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(ARCHIVE);
+            }
+        });
+        server.createContext("/missing.tar.gz", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testDownloadOnAgent() throws Exception {
+        FilePath targetFile = new FilePath(new File(temporaryFolder.getRoot(), "agent/cli.tar.gz"));
+
+        String checksum = CliArchiveDownloader.downloadOnAgent(createUrl("cli.tar.gz"), targetFile, listener);
+
+        assertThat(checksum).isEqualTo(Util.toHexString(MessageDigest.getInstance("SHA-256").digest(ARCHIVE)));
+        assertThat(targetFile.readToString()).isEqualTo("archive");
+    }
+
+    @Test
+    public void testDownloadThroughController() throws Exception {
+        FilePath targetFile = new FilePath(temporaryFolder.newFolder()).child("cli.tar.gz");
+
+        String checksum = CliArchiveDownloader.downloadThroughController(createUrl("cli.tar.gz"), targetFile, listener);
+
+        assertThat(checksum).isEqualTo(Util.toHexString(MessageDigest.getInstance("SHA-256").digest(ARCHIVE)));
+        assertThat(targetFile.readToString()).isEqualTo("archive");
+    }
+
+    @Test
+    public void testDownloadWithErrorStatus() {
+        FilePath targetFile = new FilePath(new File(temporaryFolder.getRoot(), "missing.tar.gz"));
+
+        assertThatThrownBy(() -> CliArchiveDownloader.downloadOnAgent(createUrl("missing.tar.gz"), targetFile, listener))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("404");
+    }
+
+    private String createUrl(String archiveName) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/" + archiveName;
+    }
+
+}
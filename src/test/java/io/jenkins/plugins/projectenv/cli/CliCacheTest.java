@@ -0,0 +1,72 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import hudson.FilePath;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CliCacheTest {
+
+    private static final String EXECUTABLE_NAME = "project-env-cli";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testPublishKeepsValidEntry() throws Exception {
+        FilePath entry = new FilePath(temporaryFolder.getRoot()).child("3.4.1/linux-amd64");
+
+        CliCache.publish(createStagingDirectory(entry, "first"), entry, EXECUTABLE_NAME);
+        assertThat(CliCache.isValid(entry, EXECUTABLE_NAME)).isTrue();
+
+        // a build which lost the race discards its staging directory instead of replacing the entry
+        FilePath stagingDirectory = createStagingDirectory(entry, "second");
+        CliCache.publish(stagingDirectory, entry, EXECUTABLE_NAME);
+
+        assertThat(entry.child(EXECUTABLE_NAME).readToString()).isEqualTo("first");
+        assertThat(stagingDirectory.exists()).isFalse();
+    }
+
+    @Test
+    public void testPublishReplacesInvalidEntry() throws Exception {
+        FilePath entry = new FilePath(temporaryFolder.getRoot()).child("3.4.1/linux-amd64");
+
+        CliCache.publish(createStagingDirectory(entry, "first"), entry, EXECUTABLE_NAME);
+        entry.child(EXECUTABLE_NAME).write("corrupted", StandardCharsets.UTF_8.name());
+        assertThat(CliCache.isValid(entry, EXECUTABLE_NAME)).isFalse();
+
+        CliCache.publish(createStagingDirectory(entry, "second"), entry, EXECUTABLE_NAME);
+
+        assertThat(CliCache.isValid(entry, EXECUTABLE_NAME)).isTrue();
+        assertThat(entry.child(EXECUTABLE_NAME).readToString()).isEqualTo("second");
+        assertThat(entry.getParent().listDirectories()).containsExactly(entry);
+    }
+
+    @Test
+    public void testVerifiesDigestOfEntryWithChangedModificationTime() throws Exception {
+        FilePath entry = new FilePath(temporaryFolder.getRoot()).child("3.4.1/linux-amd64");
+
+        CliCache.publish(createStagingDirectory(entry, "first"), entry, EXECUTABLE_NAME);
+        FilePath executable = entry.child(EXECUTABLE_NAME);
+
+        executable.touch(executable.lastModified() - 60_000);
+        assertThat(CliCache.isValid(entry, EXECUTABLE_NAME)).isTrue();
+
+        // same size, different content
+        executable.write("other", StandardCharsets.UTF_8.name());
+        executable.touch(executable.lastModified() - 60_000);
+        assertThat(CliCache.isValid(entry, EXECUTABLE_NAME)).isFalse();
+    }
+
+    private static FilePath createStagingDirectory(FilePath entry, String executableContent) throws Exception {
+        FilePath stagingDirectory = CliCache.createStagingDirectory(entry);
+        stagingDirectory.child(EXECUTABLE_NAME).write(executableContent, StandardCharsets.UTF_8.name());
+
+        return stagingDirectory;
+    }
+
+}
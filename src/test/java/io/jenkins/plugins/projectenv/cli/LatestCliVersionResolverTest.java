@@ -0,0 +1,94 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import com.sun.net.httpserver.HttpServer;
+import io.jenkins.plugins.projectenv.config.CliMirror;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LatestCliVersionResolverTest {
+
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    private HttpServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/broken/latest", exchange -> {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        server.createContext("/redirect/latest", exchange -> {
+            exchange.getResponseHeaders().add("Location", "https://example.com/releases/tag/v3.4.0");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.createContext("/index/latest", exchange -> {
+            byte[] index = "{\"tag_name\": \"v3.5.1\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, index.length);
+            try (OutputStream responseBody = exchange.getResponseBody()) {
+                responseBody.write(index);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        MirrorSelector.reset();
+    }
+
+    @Test
+    public void testParseLatestCliVersion() {
+        assertThat(LatestCliVersionResolver.parseLatestCliVersion("3.4.0\n")).isEqualTo("3.4.0");
+        assertThat(LatestCliVersionResolver.parseLatestCliVersion("v3.4.0")).isEqualTo("3.4.0");
+        assertThat(LatestCliVersionResolver.parseLatestCliVersion("{\"tag_name\": \"v3.4.0\"}")).isEqualTo("3.4.0");
+        assertThat(LatestCliVersionResolver.parseLatestCliVersion("{\"version\": \"3.4.0\"}")).isEqualTo("3.4.0");
+        assertThatThrownBy(() -> LatestCliVersionResolver.parseLatestCliVersion("{}")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void testResolveFromRedirect() throws Exception {
+        assertThat(LatestCliVersionResolver.get().resolve(Arrays.asList(createMirror("redirect")))).isEqualTo("3.4.0");
+    }
+
+    @Test
+    public void testResolveFailsOverToNextMirror() throws Exception {
+        CliMirror broken = createMirror("broken");
+        CliMirror index = createMirror("index");
+
+        assertThat(LatestCliVersionResolver.get().resolve(Arrays.asList(broken, index))).isEqualTo("3.5.1");
+        assertThat(MirrorSelector.getHealth(broken).isHealthy()).isFalse();
+        assertThat(MirrorSelector.getHealth(index).isHealthy()).isTrue();
+    }
+
+    @Test
+    public void testResolveFailsWithoutIndex() {
+        CliMirror mirror = new CliMirror("http://127.0.0.1/{0}");
+
+        assertThatThrownBy(() -> LatestCliVersionResolver.get().resolve(Arrays.asList(mirror))).isInstanceOf(IllegalStateException.class);
+    }
+
+    private CliMirror createMirror(String name) {
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/" + name;
+
+        CliMirror mirror = new CliMirror(baseUrl + "/v{0}/cli-{0}-{1}-{2}.{3}");
+        mirror.setLatestVersionUrl(baseUrl + "/latest");
+
+        return mirror;
+    }
+
+}
@@ -0,0 +1,56 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import io.jenkins.plugins.projectenv.config.CliMirror;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MirrorSelectorTest {
+
+    private final CliMirror first = new CliMirror("http://first/{0}");
+    private final CliMirror second = new CliMirror("http://second/{0}");
+    private final CliMirror third = new CliMirror("http://third/{0}");
+
+    @After
+    public void resetHealth() {
+        MirrorSelector.reset();
+    }
+
+    @Test
+    public void testOrderKeepsConfiguredOrderWithoutMeasurements() {
+        assertThat(MirrorSelector.order(Arrays.asList(first, second, third))).containsExactly(first, second, third);
+    }
+
+    @Test
+    public void testOrderPrefersLowestLatency() {
+        MirrorSelector.recordSuccess(first, 500);
+        MirrorSelector.recordSuccess(second, 100);
+        MirrorSelector.recordSuccess(third, 300);
+
+        assertThat(MirrorSelector.order(Arrays.asList(first, second, third))).containsExactly(second, third, first);
+    }
+
+    @Test
+    public void testOrderMovesUnhealthyMirrorsToTheEnd() {
+        MirrorSelector.recordSuccess(first, 100);
+        MirrorSelector.recordFailure(first);
+        MirrorSelector.recordSuccess(second, 500);
+
+        assertThat(MirrorSelector.order(Arrays.asList(first, second, third))).containsExactly(third, second, first);
+        assertThat(MirrorSelector.getHealth(first).isHealthy()).isFalse();
+        assertThat(MirrorSelector.getHealth(first).getFailureCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRecordSuccessSmoothesLatency() {
+        MirrorSelector.recordSuccess(first, 100);
+        MirrorSelector.recordSuccess(first, 200);
+
+        assertThat(MirrorSelector.getHealth(first).getLatencyMillis()).isEqualTo(130);
+        assertThat(MirrorSelector.getHealth(first).isHealthy()).isTrue();
+    }
+
+}
@@ -0,0 +1,292 @@
+package io.jenkins.plugins.projectenv.cli;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import hudson.Util;
+import hudson.model.TaskListener;
+import hudson.util.StreamTaskListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ResumableDownloaderTest {
+
+    private static final Pattern RANGE_PATTERN = Pattern.compile("^bytes=(\\d+)-(\\d*)$");
+
+    private static final int CONTENT_SIZE = 256 * 1024;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final byte[] content = new byte[CONTENT_SIZE];
+    private final Deque<Fault> faults = new ConcurrentLinkedDeque<>();
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private final TaskListener listener = StreamTaskListener.fromStdout();
+
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private volatile boolean acceptRanges = true;
+    private volatile String checksumFileContent;
+    private final CountDownLatch stalled = new CountDownLatch(1);
+
+    @Before
+    public void startServer() throws Exception {
+        new Random(42).nextBytes(content);
+
+        serverExecutor = Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/cli.tar.gz", this::handleArchiveRequest);
+        server.createContext("/cli.tar.gz.sha256", this::handleChecksumRequest);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testDownload() throws Exception {
+        assertDownload(createDownloader(1));
+        assertThat(requests).containsExactly("GET");
+    }
+
+    @Test
+    public void testDownloadRetriesServerErrors() throws Exception {
+        faults.add(Fault.SERVICE_UNAVAILABLE);
+        faults.add(Fault.SERVICE_UNAVAILABLE);
+
+        assertDownload(createDownloader(1));
+        assertThat(requests).containsExactly("GET", "GET", "GET");
+    }
+
+    @Test
+    public void testDownloadResumesInterruptedTransfer() throws Exception {
+        faults.add(Fault.ABORT_AFTER_HALF);
+
+        assertDownload(createDownloader(1));
+        assertThat(requests).containsExactly("GET", "GET bytes=" + CONTENT_SIZE / 2 + "-");
+    }
+
+    @Test
+    public void testDownloadStartsOverIfServerIgnoresRange() throws Exception {
+        faults.add(Fault.ABORT_AFTER_HALF);
+        acceptRanges = false;
+
+        assertDownload(createDownloader(1));
+        assertThat(requests).containsExactly("GET", "GET bytes=" + CONTENT_SIZE / 2 + "-");
+    }
+
+    @Test
+    public void testDownloadInParallelChunks() throws Exception {
+        faults.add(Fault.NONE);
+        faults.add(Fault.SERVICE_UNAVAILABLE);
+
+        assertDownload(createDownloader(4));
+        assertThat(requests)
+                .startsWith("HEAD")
+                .contains("GET bytes=0-65535", "GET bytes=65536-131071", "GET bytes=131072-196607", "GET bytes=196608-262143")
+                .hasSize(6);
+    }
+
+    @Test
+    public void testDownloadFallsBackToSingleStreamIfRangesAreNotSupported() throws Exception {
+        acceptRanges = false;
+
+        assertDownload(createDownloader(4));
+        assertThat(requests).containsExactly("HEAD", "GET");
+    }
+
+    @Test
+    public void testDownloadFailsAfterMaxAttempts() {
+        for (int i = 0; i < 10; i++) {
+            faults.add(Fault.SERVICE_UNAVAILABLE);
+        }
+
+        assertThatThrownBy(() -> createDownloader(1).download(createUrl(), temporaryFolder.newFile(), listener))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("503");
+        assertThat(requests).hasSize(3);
+    }
+
+    @Test
+    public void testDownloadDoesNotRetryClientErrors() {
+        faults.add(Fault.NOT_FOUND);
+
+        assertThatThrownBy(() -> createDownloader(1).download(createUrl(), temporaryFolder.newFile(), listener))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("404");
+        assertThat(requests).containsExactly("GET");
+    }
+
+    @Test
+    public void testDownloadVerifiesChecksum() throws Exception {
+        checksumFileContent = sha256(content) + "  cli.tar.gz\n";
+
+        assertDownload(createDownloader(1));
+    }
+
+    @Test
+    public void testDownloadFailsOnChecksumMismatch() throws Exception {
+        checksumFileContent = sha256(new byte[0]);
+
+        File targetFile = temporaryFolder.newFile();
+        assertThatThrownBy(() -> createDownloader(1).download(createUrl(), targetFile, listener))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("expected " + sha256(new byte[0]));
+        assertThat(targetFile).doesNotExist();
+    }
+
+    @Test
+    public void testInterruptAbortsStalledDownload() throws Exception {
+        faults.add(Fault.STALL_AFTER_HALF);
+
+        File targetFile = new File(temporaryFolder.getRoot(), "download/cli.tar.gz");
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread downloadThread = new Thread(() -> {
+            try {
+                createDownloader(1).download(createUrl(), targetFile, listener);
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        downloadThread.start();
+
+        assertThat(stalled.await(10, TimeUnit.SECONDS)).isTrue();
+        downloadThread.interrupt();
+        downloadThread.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertThat(downloadThread.isAlive()).isFalse();
+        assertThat(failure.get()).isInstanceOf(InterruptedException.class);
+        assertThat(targetFile).doesNotExist();
+    }
+
+    private ResumableDownloader createDownloader(int parallelChunks) {
+        return new ResumableDownloader(3, 1, 10, parallelChunks, 64 * 1024);
+    }
+
+    private void assertDownload(ResumableDownloader downloader) throws Exception {
+        File targetFile = new File(temporaryFolder.getRoot(), "download/cli.tar.gz");
+
+        String checksum = downloader.download(createUrl(), targetFile, listener);
+
+        assertThat(checksum).isEqualTo(sha256(content));
+        assertThat(Files.readAllBytes(targetFile.toPath())).isEqualTo(content);
+    }
+
+    private void handleArchiveRequest(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        requests.add(exchange.getRequestMethod() + (range != null ? " " + range : ""));
+
+        if (acceptRanges) {
+            exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        }
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(content.length));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+
+        Fault fault = faults.poll();
+        if (fault == Fault.SERVICE_UNAVAILABLE || fault == Fault.NOT_FOUND) {
+            exchange.sendResponseHeaders(fault == Fault.NOT_FOUND ? 404 : 503, -1);
+            exchange.close();
+            return;
+        }
+
+        int start = 0;
+        int end = content.length - 1;
+        Matcher matcher = range != null ? RANGE_PATTERN.matcher(range) : null;
+        if (acceptRanges && matcher != null && matcher.matches()) {
+            start = Integer.parseInt(matcher.group(1));
+            end = matcher.group(2).isEmpty() ? end : Integer.parseInt(matcher.group(2));
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+            exchange.sendResponseHeaders(206, end - start + 1);
+        } else {
+            exchange.sendResponseHeaders(200, content.length);
+        }
+
+        OutputStream responseBody = exchange.getResponseBody();
+        try {
+            if (fault == Fault.ABORT_AFTER_HALF) {
+                responseBody.write(content, start, (end - start + 1) / 2);
+                responseBody.flush();
+                // closing the exchange before all bytes were written drops the connection
+            } else if (fault == Fault.STALL_AFTER_HALF) {
+                responseBody.write(content, start, (end - start + 1) / 2);
+                responseBody.flush();
+                stalled.countDown();
+                // the connection is kept open without sending anything, until the server gets stopped
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            } else {
+                responseBody.write(content, start, end - start + 1);
+            }
+            exchange.close();
+        } catch (IOException e) {
+            // expected for aborted responses
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handleChecksumRequest(HttpExchange exchange) throws IOException {
+        String checksumFile = checksumFileContent;
+        if (checksumFile == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+
+        byte[] body = checksumFile.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+
+    private String createUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/cli.tar.gz";
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return Util.toHexString(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+
+    private enum Fault {
+        NONE,
+        SERVICE_UNAVAILABLE,
+        NOT_FOUND,
+        ABORT_AFTER_HALF,
+        STALL_AFTER_HALF
+    }
+
+}
@@ -0,0 +1,30 @@
+package io.jenkins.plugins.projectenv.config;
+
+import hudson.util.FormValidation;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CliMirrorTest {
+
+    @Test
+    public void testConstructorRejectsBlankUrlTemplate() {
+        assertThatThrownBy(() -> new CliMirror(null)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CliMirror(" ")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CliMirror("https://mirror/{0")).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(new CliMirror(" https://mirror/{0} ").getUrlTemplate()).isEqualTo("https://mirror/{0}");
+    }
+
+    @Test
+    public void testCheckUrlTemplate() {
+        CliMirror.DescriptorImpl descriptor = new CliMirror.DescriptorImpl();
+
+        assertThat(descriptor.doCheckUrlTemplate("").kind).isEqualTo(FormValidation.Kind.ERROR);
+        assertThat(descriptor.doCheckUrlTemplate("https://mirror/{0").kind).isEqualTo(FormValidation.Kind.ERROR);
+        assertThat(descriptor.doCheckUrlTemplate("https://mirror/latest").kind).isEqualTo(FormValidation.Kind.WARNING);
+        assertThat(descriptor.doCheckUrlTemplate(CliMirror.GITHUB_URL_TEMPLATE).kind).isEqualTo(FormValidation.Kind.OK);
+    }
+
+}
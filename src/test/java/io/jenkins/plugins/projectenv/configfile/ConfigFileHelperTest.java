@@ -0,0 +1,145 @@
+package io.jenkins.plugins.projectenv.configfile;
+
+import hudson.FilePath;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConfigFileHelperTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testReadToolsDirectory() {
+        assertThat(ConfigFileHelper.readToolsDirectory(Arrays.asList(
+                "# tools of the project",
+                "tools_directory = \"build/tools\"",
+                "",
+                "[jdk]",
+                "distribution = \"Temurin\""
+        ))).isEqualTo("build/tools");
+    }
+
+    @Test
+    public void testReadToolsDirectoryIgnoresTables() {
+        assertThat(ConfigFileHelper.readToolsDirectory(Arrays.asList(
+                "[jdk]",
+                "tools_directory = \"build/tools\""
+        ))).isEqualTo(".tools");
+    }
+
+    @Test
+    public void testReadToolsDirectoryWithoutDefinition() {
+        assertThat(ConfigFileHelper.readToolsDirectory(Collections.emptyList())).isEqualTo(".tools");
+    }
+
+    @Test
+    public void testReduceToTools() {
+        assertThat(ConfigFileHelper.reduceToTools(Arrays.asList(
+                "tools_directory = \".tools\"",
+                "",
+                "[jdk]",
+                "distribution = \"Temurin\"",
+                "",
+                "[nodejs]",
+                "version = \"17.2.0\"",
+                "post_extraction_commands = [",
+                "    \"npm install -g yarn@1.22.18\"",
+                "]",
+                "",
+                "[[maven.extensions]]",
+                "name = \"example\""
+        ), Collections.singletonList("nodejs"))).containsExactly(
+                "tools_directory = \".tools\"",
+                "",
+                "[nodejs]",
+                "version = \"17.2.0\"",
+                "post_extraction_commands = [",
+                "    \"npm install -g yarn@1.22.18\"",
+                "]",
+                ""
+        );
+    }
+
+    @Test
+    public void testReduceToToolsWithMultiLineValues() {
+        assertThat(ConfigFileHelper.reduceToTools(Arrays.asList(
+                "[jdk]",
+                "post_extraction_commands = [",
+                "    [\"echo\", \"[nodejs]\"],",
+                "    [\"java\", \"-version\"]",
+                "]",
+                "",
+                "[nodejs]",
+                "description = \"\"\"",
+                "[jdk]",
+                "\"\"\"",
+                "",
+                "[[nodejs.post_extraction_commands]]",
+                "command = 'npm install -g yarn' # [jdk]",
+                "",
+                "[[ \"jdk\".post_extraction_commands ]]",
+                "command = \"java -version\""
+        ), Collections.singletonList("nodejs"))).containsExactly(
+                "[nodejs]",
+                "description = \"\"\"",
+                "[jdk]",
+                "\"\"\"",
+                "",
+                "[[nodejs.post_extraction_commands]]",
+                "command = 'npm install -g yarn' # [jdk]",
+                ""
+        );
+    }
+
+    @Test
+    public void testReadToolsDirectoryAfterMultiLineArray() {
+        assertThat(ConfigFileHelper.readToolsDirectory(Arrays.asList(
+                "excludes = [",
+                "    [\"build\"]",
+                "]",
+                "tools_directory = \"build/tools\""
+        ))).isEqualTo("build/tools");
+    }
+
+    @Test
+    public void testReduceToToolsWithUnknownTool() {
+        assertThatThrownBy(() -> ConfigFileHelper.reduceToTools(Collections.singletonList("[jdk]"), Collections.singletonList("nodejs")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("nodejs");
+    }
+
+    @Test
+    public void testCreateAndRemoveToolsSubsetConfigFile() throws Exception {
+        FilePath workspace = new FilePath(temporaryFolder.getRoot());
+        workspace.child("etc/project-env.toml").write("tools_directory = \"../.tools\"\n[jdk]\n[nodejs]\n", StandardCharsets.UTF_8.name());
+
+        String first = ConfigFileHelper.createToolsSubsetConfigFile(workspace, "etc/project-env.toml", Collections.singletonList("nodejs"));
+        String second = ConfigFileHelper.createToolsSubsetConfigFile(workspace, "etc/project-env.toml", Collections.singletonList("nodejs"));
+
+        // parallel branches with the same tools do not share a copy, so that one of them cannot remove it for the other
+        assertThat(first).isNotEqualTo(second).contains(".project-env-").endsWith(".toml");
+        assertThat(workspace.child(first).readToString()).isEqualTo("tools_directory = \"../.tools\"\n[nodejs]");
+        assertThat(workspace.child("etc").list()).hasSize(3);
+
+        ConfigFileHelper.removeToolsSubsetConfigFile(workspace, first);
+        ConfigFileHelper.removeToolsSubsetConfigFile(workspace, second);
+
+        assertThat(workspace.child("etc").list()).extracting(FilePath::getName).containsExactly("project-env.toml");
+    }
+
+    @Test
+    public void testCreateToolsSubsetConfigFileId() {
+        assertThat(ConfigFileHelper.createToolsSubsetConfigFileId("project-env.toml", Arrays.asList("nodejs", "jdk")))
+                .isEqualTo(ConfigFileHelper.createToolsSubsetConfigFileId("project-env.toml", Arrays.asList("jdk", "nodejs")));
+    }
+
+}
@@ -0,0 +1,95 @@
+package io.jenkins.plugins.projectenv.environment;
+
+import hudson.EnvVars;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactEnvironmentExpanderTest {
+
+    @Test
+    public void testExpandMatchesOverrideAll() throws Exception {
+        EnvVars projectEnvVars = createProjectEnvVars();
+
+        EnvVars expectedEnvVars = createCurrentEnvVars();
+        expectedEnvVars.overrideAll(projectEnvVars);
+
+        CompactEnvironmentExpander expander = CompactEnvironmentExpander.create(projectEnvVars);
+        for (int i = 0; i < 2; i++) {
+            // the second expansion uses the cached PATH
+            EnvVars envVars = createCurrentEnvVars();
+            expander.expand(envVars);
+
+            assertThat(envVars).isEqualTo(expectedEnvVars);
+        }
+
+        EnvVars envVarsWithOtherPath = createCurrentEnvVars();
+        envVarsWithOtherPath.put("PATH", "/opt/bin");
+        expander.expand(envVarsWithOtherPath);
+        assertThat(envVarsWithOtherPath.get("PATH")).endsWith("/opt/bin").contains("/workspace/.tools/tool1/bin");
+    }
+
+    @Test
+    public void testExpandOverridesVariablesChangedAfterStart() throws Exception {
+        EnvVars projectEnvVars = createProjectEnvVars();
+
+        // the variable equals the project environment when the block starts, but is changed before the body expands it
+        CompactEnvironmentExpander expander = CompactEnvironmentExpander.create(projectEnvVars);
+        EnvVars envVars = createCurrentEnvVars();
+        envVars.put("TOOL1_HOME", "/opt/tool1");
+
+        EnvVars expectedEnvVars = new EnvVars(envVars);
+        expectedEnvVars.overrideAll(projectEnvVars);
+
+        expander.expand(envVars);
+        assertThat(envVars).isEqualTo(expectedEnvVars);
+        assertThat(envVars.get("TOOL1_HOME")).isEqualTo("/workspace/.tools/tool1");
+    }
+
+    @Test
+    public void testSerializedFormExcludesCachedPath() throws Exception {
+        EnvVars projectEnvVars = createProjectEnvVars();
+        CompactEnvironmentExpander expander = CompactEnvironmentExpander.create(projectEnvVars);
+
+        int envVarsSize = serializedSize(projectEnvVars);
+        int expanderSize = serializedSize(expander);
+        System.out.println("serialized size of project environment: " + envVarsSize + " bytes as EnvVars, " + expanderSize + " bytes as expander");
+
+        expander.expand(createCurrentEnvVars());
+        assertThat(serializedSize(expander)).isEqualTo(expanderSize);
+    }
+
+    private static EnvVars createProjectEnvVars() {
+        EnvVars projectEnvVars = new EnvVars();
+        for (int tool = 0; tool < 10; tool++) {
+            projectEnvVars.put("PATH+TOOL" + tool + "_0", "/workspace/.tools/tool" + tool + "/bin");
+            projectEnvVars.put("TOOL" + tool + "_HOME", "/workspace/.tools/tool" + tool);
+        }
+
+        return projectEnvVars;
+    }
+
+    private static EnvVars createCurrentEnvVars() {
+        EnvVars envVars = new EnvVars();
+        envVars.put("PATH", "/usr/local/bin:/usr/bin:/bin");
+        for (int tool = 0; tool < 5; tool++) {
+            envVars.put("TOOL" + tool + "_HOME", "/workspace/.tools/tool" + tool);
+        }
+
+        return envVars;
+    }
+
+    private static int serializedSize(Serializable object) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+            objectOutputStream.writeObject(object);
+        }
+
+        return outputStream.size();
+    }
+
+}
@@ -0,0 +1,41 @@
+package io.jenkins.plugins.projectenv.environment;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResolvedEnvironmentActionTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testPathsExistResolvesRelativePathsAgainstWorkspace() throws Exception {
+        File workspace = temporaryFolder.newFolder();
+        File toolDirectory = new File(workspace, ".tools/node/bin");
+        assertThat(toolDirectory.mkdirs()).isTrue();
+
+        ResolvedEnvironmentAction.PathsExistCallable callable = new ResolvedEnvironmentAction.PathsExistCallable(
+                Arrays.asList(".tools/node/bin", toolDirectory.getAbsolutePath()));
+
+        assertThat(callable.invoke(workspace, null)).isTrue();
+        assertThat(callable.invoke(temporaryFolder.newFolder(), null)).isFalse();
+    }
+
+    @Test
+    public void testPathsExistWithRemovedPath() throws Exception {
+        File workspace = temporaryFolder.newFolder();
+
+        ResolvedEnvironmentAction.PathsExistCallable callable = new ResolvedEnvironmentAction.PathsExistCallable(
+                Collections.singletonList(".tools/node/bin"));
+
+        assertThat(callable.invoke(workspace, null)).isFalse();
+    }
+
+}
@@ -0,0 +1,52 @@
+package io.jenkins.plugins.projectenv.lock;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AgentLockRegistryTest {
+
+    @Test
+    public void testRenewExtendsLease() throws Exception {
+        AgentLockRegistry.acquire("renewed", "owner", 200);
+        Thread.sleep(100);
+        assertThat(AgentLockRegistry.renew("renewed", "owner", TimeUnit.MINUTES.toMillis(1))).isTrue();
+        Thread.sleep(200);
+
+        // the renewed lease has not expired yet
+        assertThat(AgentLockRegistry.renew("renewed", "other", TimeUnit.MINUTES.toMillis(1))).isFalse();
+        long start = System.nanoTime();
+        Thread waiter = new Thread(() -> {
+            try {
+                AgentLockRegistry.acquire("renewed", "other", TimeUnit.MINUTES.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        waiter.join(200);
+        assertThat(waiter.isAlive()).isTrue();
+
+        AgentLockRegistry.release("renewed", "owner");
+        waiter.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat(waiter.isAlive()).isFalse();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(200);
+
+        AgentLockRegistry.release("renewed", "other");
+    }
+
+    @Test
+    public void testExpiredLeaseCannotBeRenewed() throws Exception {
+        AgentLockRegistry.acquire("expired", "owner", 50);
+        Thread.sleep(100);
+
+        // another owner takes over the expired lease
+        AgentLockRegistry.acquire("expired", "other", TimeUnit.MINUTES.toMillis(1));
+        assertThat(AgentLockRegistry.renew("expired", "owner", TimeUnit.MINUTES.toMillis(1))).isFalse();
+
+        AgentLockRegistry.release("expired", "other");
+    }
+
+}
@@ -0,0 +1,42 @@
+package io.jenkins.plugins.projectenv.proc;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LimitedByteArrayOutputStreamTest {
+
+    @Test
+    public void testCollectsBytesUpToLimit() throws Exception {
+        try (LimitedByteArrayOutputStream outputStream = new LimitedByteArrayOutputStream(5)) {
+            outputStream.write("abc".getBytes(StandardCharsets.UTF_8));
+            outputStream.write("de".getBytes(StandardCharsets.UTF_8));
+
+            // reaching the limit exactly does not exceed it
+            assertThat(outputStream.isLimitExceeded()).isFalse();
+            assertThat(IOUtils.toString(outputStream.toInputStream(), StandardCharsets.UTF_8)).isEqualTo("abcde");
+
+            outputStream.write('f');
+
+            assertThat(outputStream.isLimitExceeded()).isTrue();
+            assertThat(IOUtils.toString(outputStream.toInputStream(), StandardCharsets.UTF_8)).isEqualTo("abcde");
+        }
+    }
+
+    @Test
+    public void testTruncatesWriteCrossingLimit() throws Exception {
+        try (LimitedByteArrayOutputStream outputStream = new LimitedByteArrayOutputStream(5)) {
+            outputStream.write("abcdefg".getBytes(StandardCharsets.UTF_8), 1, 6);
+
+            assertThat(outputStream.isLimitExceeded()).isTrue();
+            assertThat(IOUtils.toString(outputStream.toInputStream(), StandardCharsets.UTF_8)).isEqualTo("bcdef");
+
+            outputStream.write("h".getBytes(StandardCharsets.UTF_8));
+            assertThat(outputStream.size()).isEqualTo(5);
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+package io.jenkins.plugins.projectenv.proc;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LineLoggingOutputStreamTest {
+
+    @Test
+    public void testWritesCompleteLines() throws Exception {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        try (PrintStream logger = new PrintStream(log, true, StandardCharsets.UTF_8.name())) {
+            LineLoggingOutputStream outputStream = new LineLoggingOutputStream(logger);
+
+            outputStream.write("first\nsec".getBytes(StandardCharsets.UTF_8));
+            assertThat(log.toString(StandardCharsets.UTF_8.name())).isEqualTo("first\n");
+
+            // a line split across several writes is logged once it is complete
+            outputStream.write("ond\n".getBytes(StandardCharsets.UTF_8));
+            assertThat(log.toString(StandardCharsets.UTF_8.name())).isEqualTo("first\nsecond\n");
+
+            outputStream.close();
+        }
+    }
+
+    @Test
+    public void testTerminatesPartialLastLineOnClose() throws Exception {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        try (PrintStream logger = new PrintStream(log, true, StandardCharsets.UTF_8.name())) {
+            LineLoggingOutputStream outputStream = new LineLoggingOutputStream(logger);
+
+            outputStream.write("first\npartial".getBytes(StandardCharsets.UTF_8));
+            assertThat(log.toString(StandardCharsets.UTF_8.name())).isEqualTo("first\n");
+
+            outputStream.close();
+            assertThat(log.toString(StandardCharsets.UTF_8.name())).isEqualTo("first\npartial" + System.lineSeparator());
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package io.jenkins.plugins.projectenv.proc;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import hudson.util.StreamTaskListener;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link ProcHelper} with a synthetic process, which writes the given amount of bytes to
+ * the standard output and the given amount of lines to the standard error.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProcHelperBenchmark {
+
+    @Param({"1048576"})
+    public int stdOutBytes;
+
+    @Param({"0", "10000"})
+    public int stdErrLines;
+
+    private TaskListener listener;
+    private Launcher launcher;
+    private FilePath workingDirectory;
+    private String[] commands;
+
+    @Setup
+    public void setup() {
+        listener = new StreamTaskListener(OutputStream.nullOutputStream());
+        launcher = new Launcher.LocalLauncher(listener);
+        workingDirectory = new FilePath(new File(System.getProperty("java.io.tmpdir")));
+        commands = new String[]{"/bin/sh", "-c",
+                "head -c " + stdOutBytes + " /dev/zero | tr '\\0' 'x'; " +
+                        "yes 'installing tool...' | head -n " + stdErrLines + " >&2"};
+    }
+
+    @Benchmark
+    public int execute() throws Exception {
+        try (LimitedByteArrayOutputStream stdOutOutputStream = new LimitedByteArrayOutputStream(Long.MAX_VALUE)) {
+            return ProcHelper.execute(launcher, new EnvVars(), workingDirectory, listener, stdOutOutputStream, commands);
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package io.jenkins.plugins.projectenv.snapshot;
+
+import hudson.FilePath;
+import io.jenkins.plugins.projectenv.agent.AgentInfo;
+import io.jenkins.plugins.projectenv.agent.CpuArchitecture;
+import io.jenkins.plugins.projectenv.agent.ImmutableAgentInfo;
+import io.jenkins.plugins.projectenv.agent.OperatingSystem;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ToolsSnapshotStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSaveAndRestore() throws Exception {
+        File storeDirectory = temporaryFolder.newFolder("store");
+
+        FilePath toolsDirectory = new FilePath(temporaryFolder.newFolder("tools"));
+        toolsDirectory.child("jdk/bin/java").write("java", StandardCharsets.UTF_8.name());
+        toolsDirectory.child("maven/bin/mvn").write("mvn", StandardCharsets.UTF_8.name());
+        toolsDirectory.child("state.json").write("{}", StandardCharsets.UTF_8.name());
+
+        assertThat(ToolsSnapshotStore.save(storeDirectory, "key", toolsDirectory, Long.MAX_VALUE)).isTrue();
+        assertThat(ToolsSnapshotStore.save(storeDirectory, "key", toolsDirectory, Long.MAX_VALUE)).isFalse();
+
+        FilePath restoredToolsDirectory = new FilePath(temporaryFolder.getRoot()).child("restored");
+        assertThat(ToolsSnapshotStore.restore(storeDirectory, "key", restoredToolsDirectory)).isTrue();
+        assertThat(restoredToolsDirectory.child("jdk/bin/java").readToString()).isEqualTo("java");
+        assertThat(restoredToolsDirectory.child("maven/bin/mvn").readToString()).isEqualTo("mvn");
+        assertThat(restoredToolsDirectory.child("state.json").readToString()).isEqualTo("{}");
+    }
+
+    @Test
+    public void testSaveAndRestoreEntriesWithGlobCharacters() throws Exception {
+        File storeDirectory = temporaryFolder.newFolder("store");
+
+        FilePath toolsDirectory = new FilePath(temporaryFolder.newFolder("tools"));
+        toolsDirectory.child("node[18]/bin/node").write("node", StandardCharsets.UTF_8.name());
+
+        assertThat(ToolsSnapshotStore.save(storeDirectory, "key", toolsDirectory, Long.MAX_VALUE)).isTrue();
+
+        FilePath restoredToolsDirectory = new FilePath(temporaryFolder.getRoot()).child("restored");
+        assertThat(ToolsSnapshotStore.restore(storeDirectory, "key", restoredToolsDirectory)).isTrue();
+        assertThat(restoredToolsDirectory.child("node[18]/bin/node").readToString()).isEqualTo("node");
+    }
+
+    @Test
+    public void testRestoreRejectsTamperedSnapshot() throws Exception {
+        File storeDirectory = temporaryFolder.newFolder("store");
+
+        FilePath toolsDirectory = new FilePath(temporaryFolder.newFolder("tools"));
+        toolsDirectory.child("jdk/bin/java").write("java", StandardCharsets.UTF_8.name());
+        ToolsSnapshotStore.save(storeDirectory, "key", toolsDirectory, Long.MAX_VALUE);
+
+        FilePath otherToolsDirectory = new FilePath(temporaryFolder.newFolder("other"));
+        otherToolsDirectory.child("jdk/bin/java").write("malicious", StandardCharsets.UTF_8.name());
+        ToolsSnapshotStore.save(storeDirectory, "other", otherToolsDirectory, Long.MAX_VALUE);
+        FileUtils.copyFile(new File(storeDirectory, "other/0.tar.gz"), new File(storeDirectory, "key/0.tar.gz"));
+
+        FilePath restoredToolsDirectory = new FilePath(temporaryFolder.getRoot()).child("restored");
+        assertThatThrownBy(() -> ToolsSnapshotStore.restore(storeDirectory, "key", restoredToolsDirectory))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("does not match its digest");
+        assertThat(restoredToolsDirectory.exists()).isFalse();
+        assertThat(ToolsSnapshotStore.getKeys(storeDirectory)).containsExactly("other");
+    }
+
+    @Test
+    public void testKeyIsScopedToJobAndToolsDirectory() {
+        AgentInfo agentInfo = ImmutableAgentInfo.builder()
+                .operatingSystem(OperatingSystem.LINUX)
+                .cpuArchitecture(CpuArchitecture.AMD_64)
+                .build();
+
+        String key = ToolsSnapshotStore.createKey("folder/job", "digest", "/workspace/.tools", agentInfo);
+
+        assertThat(ToolsSnapshotStore.createKey("folder/job", "digest", "/workspace/.tools", agentInfo)).isEqualTo(key);
+        assertThat(ToolsSnapshotStore.createKey("folder/other", "digest", "/workspace/.tools", agentInfo)).isNotEqualTo(key);
+        assertThat(ToolsSnapshotStore.createKey("folder/job", "digest", "/workspace@2/.tools", agentInfo)).isNotEqualTo(key);
+    }
+
+    @Test
+    public void testRestoreWithoutSnapshot() throws Exception {
+        File storeDirectory = temporaryFolder.newFolder("store");
+        FilePath toolsDirectory = new FilePath(temporaryFolder.getRoot()).child("tools");
+
+        assertThat(ToolsSnapshotStore.restore(storeDirectory, "key", toolsDirectory)).isFalse();
+        assertThat(toolsDirectory.exists()).isFalse();
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsedSnapshots() throws Exception {
+        File storeDirectory = temporaryFolder.newFolder("store");
+
+        FilePath toolsDirectory = new FilePath(temporaryFolder.newFolder("tools"));
+        toolsDirectory.child("jdk/bin/java").write("java", StandardCharsets.UTF_8.name());
+
+        ToolsSnapshotStore.save(storeDirectory, "first", toolsDirectory, Long.MAX_VALUE);
+        ToolsSnapshotStore.save(storeDirectory, "second", toolsDirectory, Long.MAX_VALUE);
+        new File(storeDirectory, "first/.last-used").setLastModified(System.currentTimeMillis() - 60_000);
+        new File(storeDirectory, "second/.last-used").setLastModified(System.currentTimeMillis() - 30_000);
+
+        // restoring marks the first snapshot as most recently used
+        ToolsSnapshotStore.restore(storeDirectory, "first", new FilePath(temporaryFolder.getRoot()).child("restored"));
+
+        long snapshotSizeBytes = FileUtils.sizeOfDirectory(new File(storeDirectory, "first"));
+        ToolsSnapshotStore.save(storeDirectory, "third", toolsDirectory, 2 * snapshotSizeBytes);
+
+        assertThat(ToolsSnapshotStore.getKeys(storeDirectory)).containsExactlyInAnyOrder("first", "third");
+    }
+
+}
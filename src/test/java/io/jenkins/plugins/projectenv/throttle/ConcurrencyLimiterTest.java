@@ -0,0 +1,91 @@
+package io.jenkins.plugins.projectenv.throttle;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void testAcquireBlocksWhileLimitIsReached() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(() -> 1);
+
+        ConcurrencyLimiter.Permit permit = limiter.acquire();
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try (ConcurrencyLimiter.Permit ignored = limiter.acquire()) {
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+
+        assertThat(acquired.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(limiter.getQueueLength()).isEqualTo(1);
+
+        permit.close();
+
+        assertThat(acquired.await(10, TimeUnit.SECONDS)).isTrue();
+        waiter.join();
+        assertThat(limiter.getActiveCount()).isZero();
+    }
+
+    @Test
+    public void testAcquireIsFair() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(() -> 1);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+
+        ConcurrencyLimiter.Permit permit = limiter.acquire();
+        List<Thread> waiters = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int index = i;
+            Thread waiter = new Thread(() -> {
+                try (ConcurrencyLimiter.Permit ignored = limiter.acquire()) {
+                    order.add(index);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            waiter.start();
+            waiters.add(waiter);
+
+            // make sure the waiters are queued in the order they were started
+            while (limiter.getQueueLength() < i + 1) {
+                Thread.sleep(1);
+            }
+        }
+
+        permit.close();
+        for (Thread waiter : waiters) {
+            waiter.join();
+        }
+
+        assertThat(order).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    public void testAcquireWithoutLimit() throws Exception {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(() -> 0);
+        AtomicInteger acquired = new AtomicInteger();
+
+        List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            permits.add(limiter.acquire());
+            acquired.incrementAndGet();
+        }
+
+        assertThat(acquired).hasValue(10);
+        assertThat(limiter.getActiveCount()).isEqualTo(10);
+        permits.forEach(ConcurrencyLimiter.Permit::close);
+        assertThat(limiter.getActiveCount()).isZero();
+    }
+
+}
@@ -0,0 +1,76 @@
+package io.jenkins.plugins.projectenv.throttle;
+
+import hudson.model.Computer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DownloadThrottleTest {
+
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Test
+    public void testDownloadWaitsForPermitOfSameMirror() throws Exception {
+        DownloadThrottle throttle = new DownloadThrottle(() -> 0, () -> 0, () -> 1);
+        Computer computer = jenkins.jenkins.toComputer();
+
+        DownloadThrottle.Permit permit = throttle.acquireDownload(computer, "https://first");
+
+        // downloads from other mirrors are not affected
+        try (DownloadThrottle.Permit otherPermit = throttle.acquireDownload(computer, "https://second")) {
+            assertThat(otherPermit.getWaitMillis()).isLessThan(1000);
+        }
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        long[] waitMillis = new long[1];
+        Thread waiter = new Thread(() -> {
+            try (DownloadThrottle.Permit waiterPermit = throttle.acquireDownload(computer, "https://first")) {
+                waitMillis[0] = waiterPermit.getWaitMillis();
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+
+        assertThat(acquired.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        permit.close();
+
+        assertThat(acquired.await(10, TimeUnit.SECONDS)).isTrue();
+        waiter.join();
+        assertThat(waitMillis[0]).isGreaterThanOrEqualTo(200);
+    }
+
+    @Test
+    public void testToolInstallWaitsForControllerWideLimit() throws Exception {
+        DownloadThrottle throttle = new DownloadThrottle(() -> 1, () -> 0, () -> 0);
+        Computer agent = jenkins.createOnlineSlave().toComputer();
+
+        DownloadThrottle.Permit permit = throttle.acquireDownload(jenkins.jenkins.toComputer(), "https://first");
+
+        CountDownLatch acquired = new CountDownLatch(1);
+        Thread waiter = new Thread(() -> {
+            try (DownloadThrottle.Permit ignored = throttle.acquireToolInstall(agent)) {
+                acquired.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+
+        assertThat(acquired.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        permit.close();
+
+        assertThat(acquired.await(10, TimeUnit.SECONDS)).isTrue();
+        waiter.join();
+    }
+
+}
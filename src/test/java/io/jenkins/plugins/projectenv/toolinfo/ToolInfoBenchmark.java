@@ -0,0 +1,88 @@
+package io.jenkins.plugins.projectenv.toolinfo;
+
+import hudson.EnvVars;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ToolInfoBenchmark {
+
+    /**
+     * Number of tools in the synthetic output, 0 uses the realistic output of a typical project instead.
+     */
+    @Param({"0", "200"})
+    public int toolCount;
+
+    private byte[] rawToolInfos;
+    private Map<String, List<ToolInfo>> toolInfos;
+
+    @Setup
+    public void setup() throws Exception {
+        if (toolCount == 0) {
+            rawToolInfos = IOUtils.toByteArray(getClass().getResource("tool-infos.json"));
+        } else {
+            rawToolInfos = ToolInfoParser.toJson(createToolInfos(toolCount, 20)).getBytes(StandardCharsets.UTF_8);
+        }
+
+        toolInfos = ToolInfoParser.fromJson(new ByteArrayInputStream(rawToolInfos));
+    }
+
+    @Benchmark
+    public Map<String, List<ToolInfo>> parseToolInfos() throws Exception {
+        return ToolInfoParser.fromJson(new ByteArrayInputStream(rawToolInfos));
+    }
+
+    @Benchmark
+    public EnvVars buildEnvVars() {
+        EnvVars envVars = new EnvVars();
+        for (Map.Entry<String, List<ToolInfo>> entry : toolInfos.entrySet()) {
+            for (ToolInfo toolInfo : entry.getValue()) {
+                ToolInfoEnvironment.apply(envVars, entry.getKey(), toolInfo);
+            }
+        }
+
+        return envVars;
+    }
+
+    private static Map<String, List<ToolInfo>> createToolInfos(int toolCount, int pathElementCount) {
+        Map<String, List<ToolInfo>> toolInfos = new LinkedHashMap<>();
+        for (int tool = 0; tool < toolCount; tool++) {
+            String toolDirectory = "/home/jenkins/workspace/monorepo/.tools/tool" + tool;
+
+            List<String> pathElements = new ArrayList<>();
+            for (int pathElement = 0; pathElement < pathElementCount; pathElement++) {
+                pathElements.add(toolDirectory + "/bin" + pathElement);
+            }
+
+            ToolInfo toolInfo = ImmutableToolInfo.builder()
+                    .primaryExecutable(toolDirectory + "/bin0/tool" + tool)
+                    .putEnvironmentVariables("TOOL" + tool + "_HOME", toolDirectory)
+                    .addAllPathElements(pathElements)
+                    .build();
+
+            List<ToolInfo> tools = new ArrayList<>();
+            tools.add(toolInfo);
+            toolInfos.put("tool" + tool, tools);
+        }
+
+        return toolInfos;
+    }
+
+}
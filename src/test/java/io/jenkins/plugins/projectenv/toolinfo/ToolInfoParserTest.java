@@ -0,0 +1,52 @@
+package io.jenkins.plugins.projectenv.toolinfo;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ToolInfoParserTest {
+
+    @Test
+    public void testFromJson() throws Exception {
+        Map<String, List<ToolInfo>> toolInfos = ToolInfoParser.fromJson(readTestResource("tool-infos.json"));
+
+        assertToolInfos(toolInfos);
+    }
+
+    @Test
+    public void testFromJsonWithLeadingNoise() throws Exception {
+        String rawToolInfos = "installing jdk...\n" +
+                "some {noise} in the log\n" +
+                readTestResource("tool-infos.json");
+
+        Map<String, List<ToolInfo>> toolInfos = ToolInfoParser.fromJson(new ByteArrayInputStream(rawToolInfos.getBytes(StandardCharsets.UTF_8)));
+
+        assertToolInfos(toolInfos);
+    }
+
+    @Test
+    public void testToJsonRoundTrip() throws Exception {
+        Map<String, List<ToolInfo>> toolInfos = ToolInfoParser.fromJson(readTestResource("tool-infos.json"));
+
+        assertThat(ToolInfoParser.fromJson(ToolInfoParser.toJson(toolInfos))).isEqualTo(toolInfos);
+    }
+
+    private void assertToolInfos(Map<String, List<ToolInfo>> toolInfos) {
+        assertThat(toolInfos).containsOnlyKeys("jdk", "maven", "nodejs");
+        assertThat(toolInfos.get("jdk").get(0).getEnvironmentVariables()).containsEntry("JAVA_HOME", "/workspace/.tools/jdk");
+        assertThat(toolInfos.get("maven").get(0).getUnhandledProjectResources()).containsEntry("userSettingsFile", "/workspace/user_settings.xml");
+        assertThat(toolInfos.get("nodejs").get(0).getPathElements()).hasSize(2);
+    }
+
+    private String readTestResource(String resource) throws IOException {
+        return IOUtils.toString(getClass().getResource(resource), StandardCharsets.UTF_8);
+    }
+
+}